@@ -0,0 +1,138 @@
+import java.util.Arrays;
+
+/**
+ * solves a maze on a thread of its own, so that drawing the maze never waits
+ * for the search. The worker writes the cells it explores into order and
+ * publishes how many it has written through the volatile explored, every
+ * PUBLISH_CELLS cells and at the end. A reader that reads explored first can
+ * then read that many cells of order without any locking, since the worker
+ * never writes them again. The path is published the same way once it is
+ * found.
+ */
+class BackgroundSolver extends GridSearch implements Runnable {
+  // how many cells the worker explores between two publications
+  static final int PUBLISH_CELLS = 1024;
+
+  int start;
+  int goal;
+  boolean depthFirst;
+
+  /**
+   * the cells in the order they were explored, of which the first explored
+   * ones are published.
+   */
+  int[] order;
+
+  /**
+   * the number of cells of order that can be read.
+   */
+  volatile int explored;
+
+  /**
+   * the cells of the path from the goal back to the start, or null until it is
+   * found.
+   */
+  volatile int[] path;
+
+  // set by another thread to stop the worker
+  volatile boolean cancelled;
+
+  Thread worker;
+
+  /**
+   * constructor for a search from the start to the goal of the given maze.
+   *
+   * @param grid       the maze, which must not change while it is solved
+   * @param start      the cell the search starts at
+   * @param goal       the cell the search looks for
+   * @param depthFirst whether to search depth-first instead of breadth-first
+   */
+  BackgroundSolver(MazeGrid grid, int start, int goal, boolean depthFirst) {
+    super(grid);
+    this.start = start;
+    this.goal = goal;
+    this.depthFirst = depthFirst;
+    this.order = new int[grid.cells()];
+  }
+
+  /**
+   * starts the search on a daemon thread of its own.
+   */
+  void start() {
+    this.worker = new Thread(this, "maze solver");
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * asks the search to stop as soon as it can.
+   */
+  void cancel() {
+    this.cancelled = true;
+  }
+
+  /**
+   * waits for the search to end.
+   */
+  void await() throws InterruptedException {
+    if (this.worker != null) {
+      this.worker.join();
+    }
+  }
+
+  /**
+   * checks if the path was found.
+   */
+  boolean isSolved() {
+    return this.path != null;
+  }
+
+  /**
+   * searches like GridSearch.walk, but records and publishes the cells it
+   * explores on the way.
+   */
+  public void run() {
+    Arrays.fill(this.cameFrom, -1);
+    int head = 0;
+    int tail = 1;
+    int count = 0;
+    this.frontier[0] = this.start;
+    this.closed.add(this.start);
+
+    while (head < tail && !this.cancelled) {
+      int cell;
+      if (this.depthFirst) {
+        tail--;
+        cell = this.frontier[tail];
+      }
+      else {
+        cell = this.frontier[head];
+        head++;
+      }
+      this.order[count] = cell;
+      count++;
+      if (count % PUBLISH_CELLS == 0) {
+        this.explored = count;
+      }
+
+      if (cell == this.goal) {
+        this.expanded = count;
+        this.explored = count;
+        this.path = this.trace(this.start, this.goal);
+        return;
+      }
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        if (this.grid.canMove(cell, dir)) {
+          int other = this.grid.neighbor(cell, dir);
+          if (this.closed.add(other)) {
+            this.cameFrom[other] = cell;
+            this.frontier[tail] = other;
+            tail++;
+          }
+        }
+      }
+    }
+    this.expanded = count;
+    this.explored = count;
+  }
+}
@@ -0,0 +1,46 @@
+import java.util.Random;
+
+/**
+ * generates mazes with the recursive backtracker: a random walk that carves
+ * into unvisited cells and backs up when it gets stuck. The recursion is
+ * replaced by a stack of cell ids, so it cannot overflow on large mazes.
+ */
+class BacktrackerGenerator implements MazeGenerator {
+
+  public void generate(MazeGrid grid, Random rand) {
+    VisitedSet visited = new VisitedSet(grid.cells());
+    int[] stack = new int[grid.cells()];
+    int[] choices = new int[4];
+    int top = 0;
+
+    stack[top] = rand.nextInt(grid.cells());
+    visited.add(stack[top]);
+    top++;
+
+    while (top > 0) {
+      int cell = stack[top - 1];
+
+      // collects the directions that lead to unvisited cells
+      int count = 0;
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        int other = grid.neighbor(cell, dir);
+        if (other >= 0 && !visited.contains(other)) {
+          choices[count] = dir;
+          count++;
+        }
+      }
+
+      if (count == 0) {
+        top--;
+      }
+      else {
+        int dir = choices[rand.nextInt(count)];
+        int other = grid.neighbor(cell, dir);
+        grid.carve(cell, dir);
+        visited.add(other);
+        stack[top] = other;
+        top++;
+      }
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * represents a forest of disjoint sets over the ids 0 to size - 1, used by
+ * kruskal's algorithm to know which cells are already connected.
+ */
+class DisjointSet {
+  /**
+   * the parent of every id, an id that is its own parent is the representative
+   * of its set.
+   */
+  int[] parent;
+
+  /**
+   * an upper bound of the height of the tree under every representative.
+   */
+  byte[] rank;
+
+  /**
+   * constructor that puts every id in a set of its own.
+   *
+   * @param size the number of ids
+   */
+  DisjointSet(int size) {
+    this.parent = new int[size];
+    this.rank = new byte[size];
+    this.reset();
+  }
+
+  /**
+   * puts every id back into a set of its own.
+   */
+  void reset() {
+    for (int i = 0; i < this.parent.length; i++) {
+      this.parent[i] = i;
+      this.rank[i] = 0;
+    }
+  }
+
+  /**
+   * finds the representative of the set containing the given id, halving the
+   * path to it along the way.
+   *
+   * @param id the id to be found
+   * @return the representative of its set
+   */
+  int find(int id) {
+    while (this.parent[id] != id) {
+      this.parent[id] = this.parent[this.parent[id]];
+      id = this.parent[id];
+    }
+    return id;
+  }
+
+  /**
+   * merges the sets containing the two ids, hanging the shorter tree under the
+   * taller one.
+   *
+   * @param id1 an id in the first set
+   * @param id2 an id in the second set
+   * @return true if the ids were in different sets before the union
+   */
+  boolean union(int id1, int id2) {
+    int r1 = this.find(id1);
+    int r2 = this.find(id2);
+    if (r1 == r2) {
+      return false;
+    }
+
+    if (this.rank[r1] < this.rank[r2]) {
+      this.parent[r1] = r2;
+    }
+    else if (this.rank[r1] > this.rank[r2]) {
+      this.parent[r2] = r1;
+    }
+    else {
+      this.parent[r2] = r1;
+      this.rank[r1]++;
+    }
+    return true;
+  }
+
+  /**
+   * checks if the two ids are in the same set.
+   */
+  boolean connected(int id1, int id2) {
+    return this.find(id1) == this.find(id2);
+  }
+}
@@ -0,0 +1,173 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * computes the number of steps from one source cell to every cell of a maze,
+ * with a breadth-first search that goes one level at a time. Large levels are
+ * split into chunks that are expanded on a ForkJoinPool, small ones are
+ * expanded on the calling thread.
+ *
+ * Chunks of one level share the distance array without locking. That is
+ * safe because every write during a level stores the same value, the
+ * distance of the next level, and only into a cell that still holds -1: an
+ * int write is never torn, so a chunk reading a cell another chunk is writing
+ * sees either -1 or that value, and on -1 it writes the same value again. It
+ * is also safe because every level is joined before the next one starts: the
+ * invoke of the pool and the join of each forked half order all the writes
+ * of a level before every read of the next level and before compute returns,
+ * so no chunk can see -1 in a cell an earlier level reached.
+ *
+ * The only effect of two chunks reaching the same cell in the same level is
+ * that the cell is in the next level twice and is expanded twice, which costs
+ * time but finds nothing new. In a perfect maze every cell has one parent, so
+ * this never happens.
+ */
+class DistanceField {
+  MazeGrid grid;
+  ForkJoinPool pool;
+  // levels with at most this many cells, and the chunks of larger levels, are
+  // expanded without splitting them
+  int chunk;
+
+  /**
+   * the cell farthest from the source in the last field computed.
+   */
+  int farthest;
+
+  /**
+   * the distance of the farthest cell.
+   */
+  int depth;
+
+  /**
+   * constructor for fields of the given maze, computed on the common pool in
+   * chunks of 4096 cells.
+   *
+   * @param grid the maze
+   */
+  DistanceField(MazeGrid grid) {
+    this(grid, ForkJoinPool.commonPool(), 4096);
+  }
+
+  /**
+   * constructor for fields of the given maze, computed on the given pool.
+   *
+   * @param grid  the maze
+   * @param pool  the pool large levels are expanded on
+   * @param chunk the number of cells of a level expanded without splitting
+   */
+  DistanceField(MazeGrid grid, ForkJoinPool pool, int chunk) {
+    if (chunk < 1) {
+      throw new IllegalArgumentException("a chunk needs at least one cell");
+    }
+    this.grid = grid;
+    this.pool = pool;
+    this.chunk = chunk;
+  }
+
+  /**
+   * returns the number of steps from the source to every cell.
+   *
+   * @param source the cell the distances are measured from
+   * @return the distance of every cell by id, or -1 for cells that cannot be
+   *         reached
+   */
+  int[] compute(int source) {
+    int[] distance = new int[this.grid.cells()];
+    Arrays.fill(distance, -1);
+    distance[source] = 0;
+
+    int[] level = new int[] { source };
+    int steps = 0;
+    this.farthest = source;
+    while (level.length > 0) {
+      this.farthest = level[0];
+      this.depth = steps;
+      steps++;
+      if (level.length <= this.chunk) {
+        level = this.expand(distance, level, 0, level.length, steps);
+      }
+      else {
+        level = this.pool.invoke(new LevelTask(this, distance, level, 0, level.length, steps));
+      }
+    }
+    return distance;
+  }
+
+  /**
+   * reaches every neighbor of the given range of a level that was not reached
+   * before.
+   *
+   * @param distance the distance of every cell reached so far
+   * @param level    the cells of the level being expanded
+   * @param from     the first cell of the range
+   * @param to       the end of the range
+   * @param steps    the distance of the next level
+   * @return the cells of the next level that the range reached
+   */
+  int[] expand(int[] distance, int[] level, int from, int to, int steps) {
+    int[] found = new int[Math.max(16, to - from)];
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      int cell = level[i];
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        if (this.grid.canMove(cell, dir)) {
+          int other = this.grid.neighbor(cell, dir);
+          if (distance[other] < 0) {
+            distance[other] = steps;
+            if (count == found.length) {
+              found = Arrays.copyOf(found, count * 2);
+            }
+            found[count] = other;
+            count++;
+          }
+        }
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+}
+
+/**
+ * expands a range of a level, splitting the range in half until it is small
+ * enough to expand in one go, and joins the cells both halves found.
+ */
+class LevelTask extends RecursiveTask<int[]> {
+  private static final long serialVersionUID = 1L;
+
+  DistanceField field;
+  int[] distance;
+  int[] level;
+  int from;
+  int to;
+  int steps;
+
+  LevelTask(DistanceField field, int[] distance, int[] level, int from, int to, int steps) {
+    this.field = field;
+    this.distance = distance;
+    this.level = level;
+    this.from = from;
+    this.to = to;
+    this.steps = steps;
+  }
+
+  protected int[] compute() {
+    if (this.to - this.from <= this.field.chunk) {
+      return this.field.expand(this.distance, this.level, this.from, this.to, this.steps);
+    }
+
+    int middle = (this.from + this.to) >>> 1;
+    LevelTask left = new LevelTask(this.field, this.distance, this.level, this.from, middle,
+        this.steps);
+    LevelTask right = new LevelTask(this.field, this.distance, this.level, middle, this.to,
+        this.steps);
+    left.fork();
+    int[] second = right.compute();
+    int[] first = left.join();
+
+    int[] both = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, both, first.length, second.length);
+    return both;
+  }
+}
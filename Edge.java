@@ -0,0 +1,44 @@
+/**
+ * represents the Edges(walls) of the maze.
+ *
+ */
+class Edge {
+  /**
+   * An edge contains 2 nodes that are connected horizontallyor vertically.
+   */
+  Node first;
+  Node second;
+
+  /**
+   * Weight of the edge that will be randomized later and use kruskal's algorithm
+   * to make a maze.
+   */
+  int weight;
+
+  /**
+   * constructor that makes an Edge without a weight.
+   * 
+   * @param first  the first node that connects to the second node.
+   * @param second the second node that connects to the first node to make an
+   *               edge.
+   */
+  Edge(Node first, Node second) {
+    this.first = first;
+    this.second = second;
+  }
+
+  /**
+   * constructor that makes an Edge without a weight.
+   * 
+   * @param first  the first node that connects to the second node.
+   * @param second the second node that connects to the first node to make an
+   *               edge.
+   * @param weight the weight of the edge
+   */
+  Edge(Node first, Node second, int weight) {
+    this.first = first;
+    this.second = second;
+    this.weight = weight;
+  }
+
+}
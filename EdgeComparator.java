@@ -0,0 +1,21 @@
+import java.util.Comparator;
+
+/**
+ * comparator class that compares edges by their weights.
+ * 
+ * @author sheha
+ *
+ */
+class EdgeComparator implements Comparator<Edge> {
+
+  /**
+   * returns an int that represents the different between two edges' weights.
+   * 
+   * @param e1 the edge to be compared
+   * @param e2 the edge to be compared
+   */
+  public int compare(Edge e1, Edge e2) {
+    return e1.weight - e2.weight;
+  }
+
+}
@@ -0,0 +1,12 @@
+import java.util.Random;
+
+/**
+ * generates mazes with eller's algorithm, one row at a time. The rows come from
+ * an EllerStream, so the extra memory is proportional to the width of the maze.
+ */
+class EllerGenerator implements MazeGenerator {
+
+  public void generate(MazeGrid grid, Random rand) {
+    new EllerStream(grid.width, rand).generate(grid.height, new GridRowSink(grid));
+  }
+}
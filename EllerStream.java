@@ -0,0 +1,127 @@
+import java.util.Random;
+
+/**
+ * generates a maze with eller's algorithm and hands it out one row at a time.
+ * Only the sets of the cells in the current row are remembered, so a maze of
+ * any height can be generated with memory proportional to its width.
+ */
+class EllerStream {
+  int width;
+  Random rand;
+
+  // the set of every cell in the current row, always below width
+  int[] sets;
+  int[] nextSets;
+  // the cell of the current row that is the last of each set
+  int[] last;
+  // the set in the next row that each set of the current row continues as
+  int[] continued;
+  boolean[] wentDown;
+  DisjointSet joined;
+
+  // the walls of the row that was generated last
+  byte[] row;
+
+  /**
+   * constructor for a stream of rows of the given width.
+   *
+   * @param width the number of cells in every row
+   * @param rand  the source of every random choice
+   */
+  EllerStream(int width, Random rand) {
+    if (width < 1) {
+      throw new IllegalArgumentException("a maze needs at least one cell");
+    }
+    this.width = width;
+    this.rand = rand;
+    this.sets = new int[width];
+    this.nextSets = new int[width];
+    this.last = new int[width];
+    this.continued = new int[width];
+    this.wentDown = new boolean[width];
+    this.joined = new DisjointSet(width);
+    this.row = new byte[width];
+
+    for (int x = 0; x < width; x++) {
+      this.sets[x] = x;
+    }
+  }
+
+  /**
+   * generates a whole maze of the given height and hands every row to the sink.
+   *
+   * @param height the number of rows
+   * @param sink   where the rows go
+   */
+  void generate(long height, RowSink sink) {
+    for (long y = 0; y < height; y++) {
+      sink.acceptRow(y, this.nextRow(y == height - 1));
+    }
+  }
+
+  /**
+   * generates the walls of the next row. The last row joins every set that is
+   * left, so no walls lead down from it.
+   *
+   * @param lastRow whether this is the bottom row of the maze
+   * @return the walls of the row, which are overwritten by the next call
+   */
+  byte[] nextRow(boolean lastRow) {
+    int width = this.width;
+    for (int x = 0; x < width; x++) {
+      this.row[x] = (byte) ((x < width - 1 ? MazeGrid.RIGHT : 0)
+          | (lastRow ? 0 : MazeGrid.BOTTOM));
+    }
+
+    // joins neighbors in different sets at random, or always in the last row
+    this.joined.reset();
+    for (int x = 0; x < width - 1; x++) {
+      if (!this.joined.connected(this.sets[x], this.sets[x + 1])
+          && (lastRow || this.rand.nextBoolean())) {
+        this.joined.union(this.sets[x], this.sets[x + 1]);
+        this.row[x] &= ~MazeGrid.RIGHT;
+      }
+    }
+    if (lastRow) {
+      return this.row;
+    }
+
+    for (int x = 0; x < width; x++) {
+      this.sets[x] = this.joined.find(this.sets[x]);
+      this.last[this.sets[x]] = x;
+      this.wentDown[this.sets[x]] = false;
+      this.continued[this.sets[x]] = -1;
+    }
+
+    // every set carves down at least once so that it is not cut off
+    int fresh = 0;
+    for (int x = 0; x < width; x++) {
+      int set = this.sets[x];
+      if (this.rand.nextBoolean() || (x == this.last[set] && !this.wentDown[set])) {
+        this.row[x] &= ~MazeGrid.BOTTOM;
+        this.wentDown[set] = true;
+        if (this.continued[set] < 0) {
+          this.continued[set] = fresh;
+          fresh++;
+        }
+        this.nextSets[x] = this.continued[set];
+      }
+      else {
+        this.nextSets[x] = -1;
+      }
+    }
+
+    // cells that were not carved into start sets of their own
+    for (int x = 0; x < width; x++) {
+      if (this.nextSets[x] < 0) {
+        this.nextSets[x] = fresh;
+        fresh++;
+      }
+    }
+
+    int[] temp = this.sets;
+    this.sets = this.nextSets;
+    this.nextSets = temp;
+    return this.row;
+  }
+}
@@ -0,0 +1,22 @@
+/**
+ * carves the rows it receives into a grid.
+ */
+class GridRowSink implements RowSink {
+  MazeGrid grid;
+
+  GridRowSink(MazeGrid grid) {
+    this.grid = grid;
+  }
+
+  public void acceptRow(long y, byte[] walls) {
+    int row = (int) y;
+    for (int x = 0; x < walls.length; x++) {
+      if (x < walls.length - 1 && (walls[x] & MazeGrid.RIGHT) == 0) {
+        this.grid.carve(this.grid.cellAt(x, row), MazeGrid.RIGHT);
+      }
+      if (row < this.grid.height - 1 && (walls[x] & MazeGrid.BOTTOM) == 0) {
+        this.grid.carve(this.grid.cellAt(x, row), MazeGrid.BOTTOM);
+      }
+    }
+  }
+}
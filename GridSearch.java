@@ -0,0 +1,382 @@
+import java.util.Arrays;
+
+/**
+ * searches a MazeGrid for the path between two cells, with breadth-first,
+ * depth-first, bidirectional breadth-first, A* or greedy best-first search, or
+ * over the JunctionGraph of the maze, which is made once and shared by every
+ * search.
+ * A* and greedy search are guided
+ * by the manhattan distance to the goal and keep their frontier in a LongHeap.
+ * The number of cells every search expands is kept so the strategies can be
+ * compared.
+ */
+class GridSearch {
+  // the search strategies
+  static final int BREADTH_FIRST = 0;
+  static final int DEPTH_FIRST = 1;
+  static final int A_STAR = 2;
+  static final int GREEDY = 3;
+  static final int BIDIRECTIONAL = 4;
+  static final int JUNCTIONS = 5;
+
+  MazeGrid grid;
+
+  /**
+   * the cell every cell was reached from, or -1 if it was not reached yet.
+   */
+  int[] cameFrom;
+
+  /**
+   * the number of steps to every cell along the best path found so far, used
+   * by A* and greedy search.
+   */
+  int[] cost;
+
+  // the cells that were already reached, or expanded by A* and greedy search
+  VisitedSet closed;
+  // the queue or stack of breadth-first and depth-first search
+  int[] frontier;
+
+  // the cell every cell was reached from by the half of a bidirectional search
+  // that starts at the goal, along with its cells, their steps from the goal
+  // and its queue. They are only made by the first bidirectional search
+  int[] cameTo;
+  VisitedSet closedBack;
+  int[] costBack;
+  int[] backFrontier;
+  // where the queue ends after the last call to expandLevel
+  int levelEnd;
+  // the length of the shortest path through the cell the last call to
+  // expandLevel met the other half at
+  int meetLength;
+  // the frontier of A* and greedy search, keyed by the estimated distance
+  LongHeap open;
+  // the junction graph of the maze, made by the first search over junctions
+  // and shared by every search after it
+  JunctionGraph junctions;
+
+  /**
+   * the number of cells the last search took off its frontier, the goal
+   * included.
+   */
+  int expanded;
+
+  /**
+   * constructor for a search over the given grid.
+   *
+   * @param grid the maze to search
+   */
+  GridSearch(MazeGrid grid) {
+    int cells = grid.cells();
+    this.grid = grid;
+    this.cameFrom = new int[cells];
+    this.cost = new int[cells];
+    this.closed = new VisitedSet(cells);
+    this.frontier = new int[cells];
+    this.open = new LongHeap(1024);
+  }
+
+  /**
+   * finds the path between the two cells with the given strategy.
+   *
+   * @param start    the cell the search starts at
+   * @param goal     the cell the search looks for
+   * @param strategy one of BREADTH_FIRST, DEPTH_FIRST, A_STAR, GREEDY,
+   *                 BIDIRECTIONAL or JUNCTIONS
+   * @return the cells of the path, from the goal back to the start
+   */
+  int[] search(int start, int goal, int strategy) {
+    this.expanded = 0;
+    this.closed.clear();
+    Arrays.fill(this.cameFrom, -1);
+
+    if (strategy == BREADTH_FIRST || strategy == DEPTH_FIRST) {
+      this.walk(start, goal, strategy == DEPTH_FIRST);
+    }
+    else if (strategy == A_STAR || strategy == GREEDY) {
+      this.bestFirst(start, goal, strategy == A_STAR);
+    }
+    else if (strategy == BIDIRECTIONAL) {
+      return this.joinPath(start, this.meet(start, goal), goal);
+    }
+    else if (strategy == JUNCTIONS) {
+      if (this.junctions == null) {
+        this.junctions = new JunctionGraph(this.grid);
+      }
+      int[] path = this.junctions.solve(start, goal);
+      this.expanded = this.junctions.expanded;
+      return path;
+    }
+    else {
+      throw new IllegalArgumentException("unknown search strategy " + strategy);
+    }
+    return this.trace(start, goal);
+  }
+
+  /**
+   * searches with a queue or a stack. Cells are marked when they are reached,
+   * so every cell is on the frontier at most once.
+   *
+   * @param start      the cell the search starts at
+   * @param goal       the cell the search looks for
+   * @param depthFirst whether the frontier is a stack instead of a queue
+   */
+  void walk(int start, int goal, boolean depthFirst) {
+    int head = 0;
+    int tail = 0;
+    this.frontier[tail] = start;
+    tail++;
+    this.closed.add(start);
+
+    while (head < tail) {
+      int cell;
+      if (depthFirst) {
+        tail--;
+        cell = this.frontier[tail];
+      }
+      else {
+        cell = this.frontier[head];
+        head++;
+      }
+      this.expanded++;
+
+      if (cell == goal) {
+        return;
+      }
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        if (this.grid.canMove(cell, dir)) {
+          int other = this.grid.neighbor(cell, dir);
+          if (this.closed.add(other)) {
+            this.cameFrom[other] = cell;
+            this.frontier[tail] = other;
+            tail++;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * searches breadth-first from the start and from the goal at once, one level
+   * at a time, always growing the smaller of the two frontiers. The search
+   * stops after the first level in which one side reaches a cell the other
+   * side has reached. The whole level is expanded first, since on a maze with
+   * loops the first meeting found is not always on a shortest path.
+   *
+   * @param start the cell the search starts at
+   * @param goal  the cell the search looks for
+   * @return the cell where the two halves met, with its cameFrom and cameTo
+   *         leading to the start and the goal
+   */
+  int meet(int start, int goal) {
+    if (this.cameTo == null) {
+      int cells = this.grid.cells();
+      this.cameTo = new int[cells];
+      this.closedBack = new VisitedSet(cells);
+      this.costBack = new int[cells];
+      this.backFrontier = new int[cells];
+    }
+    this.closedBack.clear();
+    Arrays.fill(this.cameTo, -1);
+
+    if (start == goal) {
+      this.expanded++;
+      return start;
+    }
+
+    this.frontier[0] = start;
+    this.closed.add(start);
+    this.cost[start] = 0;
+    this.backFrontier[0] = goal;
+    this.closedBack.add(goal);
+    this.costBack[goal] = 0;
+
+    // the queue of each half is the part of its array from head to tail
+    int head = 0;
+    int tail = 1;
+    int backHead = 0;
+    int backTail = 1;
+
+    while (head < tail && backHead < backTail) {
+      int met;
+      if (tail - head <= backTail - backHead) {
+        met = this.expandLevel(this.frontier, head, tail, this.closed, this.cameFrom,
+            this.cost, this.closedBack, this.costBack);
+        head = tail;
+        tail = this.levelEnd;
+      }
+      else {
+        met = this.expandLevel(this.backFrontier, backHead, backTail, this.closedBack,
+            this.cameTo, this.costBack, this.closed, this.cost);
+        backHead = backTail;
+        backTail = this.levelEnd;
+      }
+
+      if (met >= 0) {
+        return met;
+      }
+    }
+    throw new IllegalStateException("the search never reached cell " + goal);
+  }
+
+  /**
+   * expands the cells of one level of one half of a bidirectional search, and
+   * adds the cells of the next level to the end of its queue. Every cell of
+   * the level is as far from this half's end, so the shortest path through the
+   * level goes to the met cell that is closest to the other end.
+   *
+   * @param queue      the queue of this half
+   * @param head       the first cell of the level
+   * @param tail       the end of the level
+   * @param seen       the cells this half has reached
+   * @param parent     the cell every cell was reached from by this half
+   * @param steps      the steps from this half's end to every cell it reached
+   * @param otherSeen  the cells the other half has reached
+   * @param otherSteps the steps from the other half's end to its cells
+   * @return the cell where the halves met on the shortest path, or -1 if they
+   *         did not meet yet
+   */
+  int expandLevel(int[] queue, int head, int tail, VisitedSet seen, int[] parent,
+      int[] steps, VisitedSet otherSeen, int[] otherSteps) {
+    this.levelEnd = tail;
+    int met = -1;
+    int metFrom = -1;
+    this.meetLength = Integer.MAX_VALUE;
+    for (int i = head; i < tail; i++) {
+      int cell = queue[i];
+      this.expanded++;
+
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        if (this.grid.canMove(cell, dir)) {
+          int other = this.grid.neighbor(cell, dir);
+          if (otherSeen.contains(other)) {
+            // the other half reached this cell, but this half did not
+            int length = steps[cell] + 1 + otherSteps[other];
+            if (length < this.meetLength) {
+              this.meetLength = length;
+              met = other;
+              metFrom = cell;
+            }
+          }
+          else if (seen.add(other)) {
+            parent[other] = cell;
+            steps[other] = steps[cell] + 1;
+            queue[this.levelEnd] = other;
+            this.levelEnd++;
+          }
+        }
+      }
+    }
+
+    if (met >= 0) {
+      parent[met] = metFrom;
+    }
+    return met;
+  }
+
+  /**
+   * joins the two halves of a bidirectional search at the cell they met in.
+   *
+   * @param start the cell the search started at
+   * @param met   the cell where the halves met
+   * @param goal  the cell the search looked for
+   * @return the cells of the path, from the goal back to the start
+   */
+  int[] joinPath(int start, int met, int goal) {
+    int[] toStart = this.trace(start, met);
+    int toGoal = 0;
+    for (int cell = met; cell != goal; cell = this.cameTo[cell]) {
+      toGoal++;
+    }
+
+    int[] path = new int[toGoal + toStart.length];
+    int cell = met;
+    for (int i = toGoal; i > 0; i--) {
+      cell = this.cameTo[cell];
+      path[i - 1] = cell;
+    }
+    System.arraycopy(toStart, 0, path, toGoal, toStart.length);
+    return path;
+  }
+
+  /**
+   * searches by always expanding the cell with the smallest estimate: the
+   * steps so far plus the manhattan distance to the goal for A*, or only the
+   * manhattan distance for greedy search. A cell can be on the heap more than
+   * once, its later entries are skipped once it is expanded.
+   *
+   * @param start the cell the search starts at
+   * @param goal  the cell the search looks for
+   * @param aStar whether the steps so far count toward the estimate
+   */
+  void bestFirst(int start, int goal, boolean aStar) {
+    this.open.clear();
+    Arrays.fill(this.cost, Integer.MAX_VALUE);
+    this.cost[start] = 0;
+    this.open.push(LongHeap.entry(this.manhattan(start, goal), start));
+
+    while (!this.open.isEmpty()) {
+      int cell = LongHeap.idOf(this.open.pop());
+
+      if (this.closed.add(cell)) {
+        this.expanded++;
+        if (cell == goal) {
+          return;
+        }
+
+        int steps = this.cost[cell] + 1;
+        for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+          if (this.grid.canMove(cell, dir)) {
+            int other = this.grid.neighbor(cell, dir);
+            if (!this.closed.contains(other) && steps < this.cost[other]) {
+              this.cost[other] = steps;
+              this.cameFrom[other] = cell;
+
+              int estimate = this.manhattan(other, goal);
+              if (aStar) {
+                estimate += steps;
+              }
+              this.open.push(LongHeap.entry(estimate, other));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * returns the manhattan distance between two cells, which is never more than
+   * the number of steps between them.
+   */
+  int manhattan(int cell, int goal) {
+    return Math.abs(this.grid.xOf(cell) - this.grid.xOf(goal))
+        + Math.abs(this.grid.yOf(cell) - this.grid.yOf(goal));
+  }
+
+  /**
+   * follows cameFrom from the goal back to the start.
+   *
+   * @param start the cell the search started at
+   * @param goal  the cell the search ended at
+   * @return the cells of the path, from the goal back to the start
+   */
+  int[] trace(int start, int goal) {
+    int length = 1;
+    int cell = goal;
+    while (cell != start) {
+      cell = this.cameFrom[cell];
+      if (cell < 0) {
+        throw new IllegalStateException("the search never reached cell " + goal);
+      }
+      length++;
+    }
+
+    int[] path = new int[length];
+    cell = goal;
+    for (int i = 0; i < length; i++) {
+      path[i] = cell;
+      cell = this.cameFrom[cell];
+    }
+    return path;
+  }
+}
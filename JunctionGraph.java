@@ -0,0 +1,506 @@
+import java.util.Arrays;
+
+/**
+ * represents a maze shrunk down for solving between two cells. Dead ends are
+ * filled in first, by removing cells with a single passage until none are
+ * left, and the corridors that remain are contracted into single weighted
+ * edges between junctions: the start, the goal and every cell that does not
+ * have exactly two passages left.
+ *
+ * Every junction has one slot per direction, holding the junction at the other
+ * end of the corridor leaving it that way and the corridor's length, so paths
+ * over junctions can be expanded back into cells.
+ *
+ * A graph made without a start and a goal fills no dead ends and can be shared
+ * by searches between any two cells. Each search attaches its start and goal
+ * to it as temporary junctions, joined to the junctions at both ends of the
+ * corridor they are in.
+ */
+class JunctionGraph {
+  MazeGrid grid;
+  // the cells dead-end filling never fills, or -1 for a shared graph
+  int start;
+  int goal;
+
+  // the cells that dead-end filling removed
+  VisitedSet filled;
+  // the number of passages every cell has to cells that are not filled
+  byte[] degree;
+  // the number of cells that are not filled
+  int remaining;
+
+  /**
+   * the junction every cell is, or -1 for cells in corridors and filled cells.
+   */
+  int[] junctionOf;
+
+  /**
+   * the cell of every junction.
+   */
+  int[] cells;
+
+  /**
+   * the junction at the other end of the corridor leaving every junction in
+   * every direction, or -1, at index junction * 4 + slot(dir).
+   */
+  int[] target;
+
+  /**
+   * the number of steps along the corridor in every slot.
+   */
+  int[] weight;
+
+  /**
+   * the number of junctions the last search took off its heap.
+   */
+  int expanded;
+
+  // the state of the last search, with two more nodes than there are junctions
+  // for the cells it attached, which are kept in attached or are -1
+  int[] cost;
+  int[] cameFrom;
+  // the direction every node was reached in, from cameFrom
+  byte[] cameBy;
+  VisitedSet done;
+  LongHeap open;
+  int[] attached = new int[2];
+
+  // the edges leading to and from the attached cells, at most two for each of
+  // them and two more for the junctions they lead to
+  int[] extraFrom = new int[8];
+  int[] extraTo = new int[8];
+  byte[] extraBy = new byte[8];
+  int[] extraWeight = new int[8];
+  int extras;
+
+  /**
+   * constructor that contracts the corridors of the given maze without filling
+   * any dead ends, so that the graph can be shared by searches between any two
+   * cells.
+   *
+   * @param grid the maze to shrink
+   */
+  JunctionGraph(MazeGrid grid) {
+    this.grid = grid;
+    this.start = -1;
+    this.goal = -1;
+    this.countPassages();
+    this.filled = new VisitedSet(grid.cells());
+    this.remaining = grid.cells();
+    this.contract();
+  }
+
+  /**
+   * constructor that fills the dead ends of the given maze and contracts its
+   * corridors.
+   *
+   * @param grid  the maze to shrink
+   * @param start the cell paths start at, which is never filled
+   * @param goal  the cell paths end at, which is never filled
+   */
+  JunctionGraph(MazeGrid grid, int start, int goal) {
+    this.grid = grid;
+    this.start = start;
+    this.goal = goal;
+    this.countPassages();
+    this.fillDeadEnds();
+    this.contract();
+  }
+
+  /**
+   * returns the slot of the given direction, from 0 for RIGHT to 3 for TOP.
+   */
+  static int slot(int dir) {
+    return Integer.numberOfTrailingZeros(dir);
+  }
+
+  /**
+   * counts the passages of every cell.
+   */
+  void countPassages() {
+    int cells = this.grid.cells();
+    this.degree = new byte[cells];
+    for (int cell = 0; cell < cells; cell++) {
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        if (this.grid.canMove(cell, dir)) {
+          this.degree[cell]++;
+        }
+      }
+    }
+  }
+
+  /**
+   * removes every cell with at most one passage, except the start and the goal,
+   * and then every cell that is left with at most one passage, until none are
+   * left.
+   */
+  void fillDeadEnds() {
+    int cells = this.grid.cells();
+    this.filled = new VisitedSet(cells);
+    int[] leaves = new int[cells];
+    int count = 0;
+
+    for (int cell = 0; cell < cells; cell++) {
+      if (this.degree[cell] <= 1 && cell != this.start && cell != this.goal) {
+        this.filled.add(cell);
+        leaves[count] = cell;
+        count++;
+      }
+    }
+
+    this.remaining = cells;
+    while (count > 0) {
+      count--;
+      int cell = leaves[count];
+      this.remaining--;
+
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        if (this.grid.canMove(cell, dir)) {
+          int other = this.grid.neighbor(cell, dir);
+          this.degree[other]--;
+          if (this.degree[other] <= 1 && other != this.start && other != this.goal
+              && this.filled.add(other)) {
+            leaves[count] = other;
+            count++;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * numbers the junctions among the cells that are left and walks every
+   * corridor leaving them to find the junction at its other end.
+   */
+  void contract() {
+    int cells = this.grid.cells();
+    this.junctionOf = new int[cells];
+    Arrays.fill(this.junctionOf, -1);
+
+    int junctions = 0;
+    for (int cell = 0; cell < cells; cell++) {
+      if (this.isJunction(cell)) {
+        junctions++;
+      }
+    }
+
+    this.cells = new int[junctions];
+    int j = 0;
+    for (int cell = 0; cell < cells; cell++) {
+      if (this.isJunction(cell)) {
+        this.junctionOf[cell] = j;
+        this.cells[j] = cell;
+        j++;
+      }
+    }
+
+    this.target = new int[junctions * 4];
+    this.weight = new int[junctions * 4];
+    Arrays.fill(this.target, -1);
+    for (j = 0; j < junctions; j++) {
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        if (this.open(this.cells[j], dir)) {
+          this.walkCorridor(j, dir);
+        }
+      }
+    }
+
+    this.cost = new int[junctions + 2];
+    this.cameFrom = new int[junctions + 2];
+    this.cameBy = new byte[junctions + 2];
+    this.done = new VisitedSet(junctions + 2);
+    this.open = new LongHeap(64);
+  }
+
+  /**
+   * checks if the given cell is left after dead-end filling and is the start,
+   * the goal or a cell without exactly two passages.
+   */
+  boolean isJunction(int cell) {
+    return !this.filled.contains(cell)
+        && (cell == this.start || cell == this.goal || this.degree[cell] != 2);
+  }
+
+  /**
+   * checks if there is a passage from the cell in the given direction to a cell
+   * that is not filled.
+   */
+  boolean open(int cell, int dir) {
+    return this.grid.canMove(cell, dir)
+        && !this.filled.contains(this.grid.neighbor(cell, dir));
+  }
+
+  /**
+   * follows the corridor leaving the junction in the given direction to the
+   * junction at its other end and fills the junction's slot.
+   *
+   * @param from the junction the corridor leaves
+   * @param dir  the direction it leaves in
+   */
+  void walkCorridor(int from, int dir) {
+    int prev = this.cells[from];
+    int cell = this.grid.neighbor(prev, dir);
+    int steps = 1;
+    while (this.junctionOf[cell] < 0) {
+      int next = this.nextInCorridor(cell, prev);
+      prev = cell;
+      cell = next;
+      steps++;
+    }
+    this.target[from * 4 + slot(dir)] = this.junctionOf[cell];
+    this.weight[from * 4 + slot(dir)] = steps;
+  }
+
+  /**
+   * returns the cell after the given corridor cell, coming from prev.
+   */
+  int nextInCorridor(int cell, int prev) {
+    for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+      if (this.open(cell, dir)) {
+        int other = this.grid.neighbor(cell, dir);
+        if (other != prev) {
+          return other;
+        }
+      }
+    }
+    throw new IllegalStateException("cell " + cell + " is not in a corridor");
+  }
+
+  /**
+   * returns the number of junctions.
+   */
+  int junctions() {
+    return this.cells.length;
+  }
+
+  /**
+   * returns the number of corridors between junctions, each counted once.
+   */
+  int corridors() {
+    int ends = 0;
+    for (int t : this.target) {
+      if (t >= 0) {
+        ends++;
+      }
+    }
+    return ends / 2;
+  }
+
+  /**
+   * finds the shortest path over the junctions from the start to the goal with
+   * dijkstra's algorithm, and expands it back into cells.
+   *
+   * @return the cells of the path, from the goal back to the start
+   */
+  int[] solve() {
+    return this.solve(this.start, this.goal);
+  }
+
+  /**
+   * finds the shortest path between two cells over the junctions with
+   * dijkstra's algorithm, and expands it back into cells. Cells that are not
+   * junctions are attached to the graph for this search only. Dead ends other
+   * than the goal are never searched, since no path leads on from them.
+   *
+   * @param from the cell the path starts at
+   * @param to   the cell the path ends at
+   * @return the cells of the path, from the end back to the start
+   */
+  int[] solve(int from, int to) {
+    if (this.filled.contains(from) || this.filled.contains(to)) {
+      throw new IllegalArgumentException("cell " + (this.filled.contains(from) ? from : to)
+          + " was filled as a dead end");
+    }
+    int junctions = this.junctions();
+    int first = this.junctionOf[from] >= 0 ? this.junctionOf[from] : junctions;
+    int last = this.junctionOf[to] >= 0 ? this.junctionOf[to] : junctions + 1;
+    if (to == from) {
+      last = first;
+    }
+    this.attached[0] = first == junctions ? from : -1;
+    this.attached[1] = last == junctions + 1 ? to : -1;
+    this.extras = 0;
+    if (first == junctions) {
+      this.attach(first, from);
+    }
+    if (last == junctions + 1) {
+      this.attach(last, to);
+    }
+
+    Arrays.fill(this.cost, Integer.MAX_VALUE);
+    Arrays.fill(this.cameFrom, -1);
+    this.done.clear();
+    this.open.clear();
+    this.cost[first] = 0;
+    this.open.push(LongHeap.entry(0, first));
+    this.expanded = 0;
+
+    while (!this.open.isEmpty() && !this.done.contains(last)) {
+      int j = LongHeap.idOf(this.open.pop());
+      if (this.done.add(j)) {
+        this.expanded++;
+        if (j < junctions) {
+          for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+            int other = this.target[j * 4 + slot(dir)];
+            if (other >= 0) {
+              this.relax(j, other, dir, this.weight[j * 4 + slot(dir)], last);
+            }
+          }
+        }
+        for (int e = 0; e < this.extras; e++) {
+          if (this.extraFrom[e] == j) {
+            this.relax(j, this.extraTo[e], this.extraBy[e], this.extraWeight[e], last);
+          }
+        }
+      }
+    }
+
+    if (!this.done.contains(last)) {
+      throw new IllegalStateException("the search never reached cell " + to);
+    }
+    return this.expand(this.cost[last] + 1, last);
+  }
+
+  /**
+   * offers the node at the other end of an edge a path through the given node,
+   * unless it is already done or is a dead end the path could not leave.
+   *
+   * @param j     the node the edge leaves
+   * @param other the node at the other end of the edge
+   * @param dir   the direction the edge leaves j in
+   * @param steps the length of the edge
+   * @param last  the node of the goal
+   */
+  void relax(int j, int other, int dir, int steps, int last) {
+    if (this.done.contains(other)) {
+      return;
+    }
+    if (other != last && other < this.junctions() && this.degree[this.cells[other]] <= 1) {
+      return;
+    }
+    int total = this.cost[j] + steps;
+    if (total < this.cost[other]) {
+      this.cost[other] = total;
+      this.cameFrom[other] = j;
+      this.cameBy[other] = (byte) dir;
+      this.open.push(LongHeap.entry(total, other));
+    }
+  }
+
+  /**
+   * attaches a cell that is not a junction to the graph, with an edge both ways
+   * between it and the junction or attached cell at each end of its corridor.
+   *
+   * @param node the node of the cell in this search
+   * @param cell the cell
+   */
+  void attach(int node, int cell) {
+    for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+      if (this.open(cell, dir)) {
+        int prev = cell;
+        int at = this.grid.neighbor(cell, dir);
+        int steps = 1;
+        while (this.nodeOf(at) < 0) {
+          int next = this.nextInCorridor(at, prev);
+          prev = at;
+          at = next;
+          steps++;
+        }
+
+        int other = this.nodeOf(at);
+        // a corridor that loops back without a junction leads nowhere, and the
+        // edges between two attached cells are added by both of them
+        if (other != node) {
+          this.addEdge(node, other, dir, steps);
+          if (other < this.junctions()) {
+            this.addEdge(other, node, this.directionTo(at, prev), steps);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * adds an edge for the current search.
+   */
+  void addEdge(int from, int to, int dir, int steps) {
+    this.extraFrom[this.extras] = from;
+    this.extraTo[this.extras] = to;
+    this.extraBy[this.extras] = (byte) dir;
+    this.extraWeight[this.extras] = steps;
+    this.extras++;
+  }
+
+  /**
+   * returns the node of the given cell in the current search, or -1 if it is
+   * in a corridor.
+   */
+  int nodeOf(int cell) {
+    if (cell == this.attached[0]) {
+      return this.junctions();
+    }
+    else if (cell == this.attached[1]) {
+      return this.junctions() + 1;
+    }
+    else {
+      return this.junctionOf[cell];
+    }
+  }
+
+  /**
+   * returns the cell of the given node in the current search.
+   */
+  int cellOf(int node) {
+    if (node < this.junctions()) {
+      return this.cells[node];
+    }
+    return this.attached[node - this.junctions()];
+  }
+
+  /**
+   * returns the direction of the given neighbor from the cell.
+   */
+  int directionTo(int cell, int next) {
+    for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+      if (this.grid.neighbor(cell, dir) == next) {
+        return dir;
+      }
+    }
+    throw new IllegalArgumentException("cell " + next + " is not next to cell " + cell);
+  }
+
+  /**
+   * expands the path the last search found back into the cells of its
+   * corridors. The length of every edge on the path is the difference of the
+   * costs at its ends.
+   *
+   * @param length the number of cells on the path
+   * @param last   the node the path ends at
+   * @return the cells of the path, from its end back to its start
+   */
+  int[] expand(int length, int last) {
+    int[] path = new int[length];
+    int i = 0;
+    int j = last;
+    while (this.cameFrom[j] >= 0) {
+      int from = this.cameFrom[j];
+      int steps = this.cost[j] - this.cost[from];
+
+      // walks the corridor forward, so its cells go in from the back
+      int prev = this.cellOf(from);
+      int cell = this.grid.neighbor(prev, this.cameBy[j]);
+      for (int s = steps - 1; s >= 0; s--) {
+        path[i + s] = cell;
+        if (s > 0) {
+          int next = this.nextInCorridor(cell, prev);
+          prev = cell;
+          cell = next;
+        }
+      }
+      i += steps;
+      j = from;
+    }
+    path[i] = this.cellOf(j);
+    return path;
+  }
+}
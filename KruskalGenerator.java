@@ -0,0 +1,35 @@
+import java.util.Random;
+
+/**
+ * generates mazes with kruskal's algorithm, trying the edges either by random
+ * weight or in a random order.
+ */
+class KruskalGenerator implements MazeGenerator {
+  boolean shuffled;
+
+  /**
+   * constructor for a generator that orders the edges by random weights, the
+   * same way Maze.setMaze and Maze.sortEdges do.
+   */
+  KruskalGenerator() {
+    this(false);
+  }
+
+  /**
+   * constructor for a generator that can skip the weights.
+   *
+   * @param shuffled whether to try the edges in a random permutation instead
+   */
+  KruskalGenerator(boolean shuffled) {
+    this.shuffled = shuffled;
+  }
+
+  public void generate(MazeGrid grid, Random rand) {
+    if (this.shuffled) {
+      grid.kruskal(grid.shuffledEdges(rand));
+    }
+    else {
+      grid.kruskal(grid.edgesByWeight(rand));
+    }
+  }
+}
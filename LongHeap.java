@@ -0,0 +1,117 @@
+/**
+ * represents a binary min-heap of primitive longs. Callers pack a priority in
+ * the high bits and an id in the low bits, so entries come out ordered by
+ * priority and then by id, without boxing.
+ */
+class LongHeap {
+  long[] items;
+  int size;
+
+  /**
+   * constructor that makes an empty heap with room for the given number of
+   * entries before it has to grow.
+   *
+   * @param capacity the initial capacity
+   */
+  LongHeap(int capacity) {
+    this.items = new long[Math.max(capacity, 4)];
+    this.size = 0;
+  }
+
+  /**
+   * packs a non-negative priority and a non-negative id into one entry.
+   */
+  static long entry(int priority, int id) {
+    return ((long) priority << 32) | id;
+  }
+
+  /**
+   * returns the priority of the given entry.
+   */
+  static int priorityOf(long entry) {
+    return (int) (entry >>> 32);
+  }
+
+  /**
+   * returns the id of the given entry.
+   */
+  static int idOf(long entry) {
+    return (int) entry;
+  }
+
+  /**
+   * checks if the heap has no entries.
+   */
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * adds an entry to the heap.
+   */
+  void push(long item) {
+    if (this.size == this.items.length) {
+      long[] bigger = new long[this.items.length * 2];
+      System.arraycopy(this.items, 0, bigger, 0, this.size);
+      this.items = bigger;
+    }
+
+    // moves the new entry up past every parent that is larger
+    int i = this.size;
+    this.size++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (this.items[parent] <= item) {
+        break;
+      }
+      this.items[i] = this.items[parent];
+      i = parent;
+    }
+    this.items[i] = item;
+  }
+
+  /**
+   * returns the smallest entry without removing it.
+   */
+  long peek() {
+    if (this.size == 0) {
+      throw new IllegalStateException("the heap is empty");
+    }
+    return this.items[0];
+  }
+
+  /**
+   * removes and returns the smallest entry.
+   */
+  long pop() {
+    long top = this.peek();
+    this.size--;
+    long last = this.items[this.size];
+
+    // moves the last entry down past every child that is smaller
+    int i = 0;
+    int half = this.size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < this.size && this.items[child + 1] < this.items[child]) {
+        child++;
+      }
+      if (last <= this.items[child]) {
+        break;
+      }
+      this.items[i] = this.items[child];
+      i = child;
+    }
+    if (this.size > 0) {
+      this.items[i] = last;
+    }
+    return top;
+  }
+
+  /**
+   * removes every entry.
+   */
+  void clear() {
+    this.size = 0;
+  }
+}
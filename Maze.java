@@ -2,7 +2,6 @@ import java.util.ArrayDeque;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.Deque;
 
 import tester.*;
@@ -11,6 +10,16 @@ import java.awt.Color;
 import javalib.worldimages.*;
 import java.util.HashMap;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
 
 /* INSTRUCTIONS ON HOW TO PLAY:
  * 
@@ -29,132 +38,6 @@ import java.util.Random;
  * 
  */
 
-//represents a Node(cell) in a maze
-class Node {
-  int x;
-  int y;
-  Node top;
-  Node bottom;
-  Node left;
-  Node right;
-  Posn pos;
-
-  // constructor for Node that sets its right, left, top, and bottom to null
-  Node(int x, int y) {
-    this.x = x;
-    this.y = y;
-    pos = new Posn(x, y);
-  }
-
-  /**
-   * sets the top, right, left, and bottom of the given Node
-   * 
-   * @param board  is the board that contains the node
-   * @param i      the position of the board in the arraylist
-   * @param height the height position of the node on the board
-   * @param width  the width of the position of the node on the board
-   */
-  void setNode(ArrayList<Node> board, int i, int height, int width) {
-    // setting left cells
-    if (this.x == 0) {
-      this.left = this;
-    }
-    else {
-      this.left = board.get(i - height);
-    }
-
-    // setting right cells
-    if (this.x == width - 1) {
-      this.right = this;
-    }
-    else {
-      this.right = board.get(i + height);
-    }
-
-    // setting top cells
-    if (this.y == 0) {
-      this.top = this;
-    }
-    else {
-      this.top = board.get(i - 1);
-    }
-
-    // setting bottom cells
-    if (this.y == height - 1) {
-      this.bottom = this;
-    }
-    else {
-      this.bottom = board.get(i + 1);
-    }
-  }
-
-}
-
-/**
- * represents the Edges(walls) of the maze.
- *
- */
-class Edge {
-  /**
-   * An edge contains 2 nodes that are connected horizontallyor vertically.
-   */
-  Node first;
-  Node second;
-
-  /**
-   * Weight of the edge that will be randomized later and use kruskal's algorithm
-   * to make a maze.
-   */
-  int weight;
-
-  /**
-   * constructor that makes an Edge without a weight.
-   * 
-   * @param first  the first node that connects to the second node.
-   * @param second the second node that connects to the first node to make an
-   *               edge.
-   */
-  Edge(Node first, Node second) {
-    this.first = first;
-    this.second = second;
-  }
-
-  /**
-   * constructor that makes an Edge without a weight.
-   * 
-   * @param first  the first node that connects to the second node.
-   * @param second the second node that connects to the first node to make an
-   *               edge.
-   * @param weight the weight of the edge
-   */
-  Edge(Node first, Node second, int weight) {
-    this.first = first;
-    this.second = second;
-    this.weight = weight;
-  }
-
-}
-
-/**
- * comparator class that compares edges by their weights.
- * 
- * @author sheha
- *
- */
-class EdgeComparator implements Comparator<Edge> {
-
-  /**
-   * returns an int that represents the different between two edges' weights.
-   * 
-   * @param e1 the edge to be compared
-   * @param e2 the edge to be compared
-   */
-  public int compare(Edge e1, Edge e2) {
-    return e1.weight - e2.weight;
-  }
-
-}
-
 /**
  * represents the whole maze that is being built Maze extends the World class
  * that makes the visual representation of the game.
@@ -163,23 +46,67 @@ class Maze extends World {
   // Values can not be privatized on finalized for testing purposes
   int height;
   int width;
+  // every node, or null for a maze built from a grid until nodes() is called
   ArrayList<Node> nodes = new ArrayList<Node>();
+  // the nodes of a maze built from a grid that were asked for one at a time,
+  // by cell id, so that every cell keeps one node until nodes() is called
+  HashMap<Integer, Node> views;
   ArrayList<Node> solution = new ArrayList<Node>();
+  // the order the cells were explored in, only used to draw the search
   ArrayList<Node> movements = new ArrayList<Node>();
+  // the cells the search has already explored
+  VisitedSet visited;
   Deque<Node> workList = new ArrayDeque<Node>();
-  HashMap<Node, Edge> cameFromEdge = new HashMap<Node, Edge>();
+  // the cell each cell was first reached from, or -1 if it has not been reached
+  int[] cameFrom;
+  // the cells of the last path found, from the end back to the start
+  int[] path;
+  int pathLength;
 
   boolean depthInit = false;
   boolean breadthInit = false;
-
+  // takes the steps of the search that onTick animates
+  SearchStepper stepper = new SearchStepper(this);
+  // how many steps of the search every tick takes, or, if tickNanos is more
+  // than 0, how long every tick may take steps for
+  int tickSteps = 1;
+  long tickNanos = 0;
+
+  // the walls, or null for a maze built from a grid until edges() is called
   ArrayList<Edge> edges = new ArrayList<Edge>();
 
+  // the passages, or null for a maze built from a grid until mst() is called
   ArrayList<Edge> mst;
 
-  HashMap<Posn, Posn> map;
+  DisjointSet sets;
   Random rand = new Random();
+  // the seed the maze was generated from, or 0 if it was not
+  long seed;
   Node player;
 
+  // the walls around each cell, built once the minimal spanning tree is found
+  MazeGrid grid;
+  // the algorithm that carves the maze, or null for kruskal's algorithm over
+  // the edges list
+  MazeGenerator generator;
+  // the maze rooted at the first cell, built by the first pathBetween on a grid
+  TreeIndex tree;
+  // the search running on a thread of its own, or null
+  BackgroundSolver background;
+  // the picture of the maze kept between frames
+  MazeLayer layer = new MazeLayer(this);
+  // the camera that draws only the part of the maze around the player, or
+  // null to draw the whole maze. It fills the window bigBang opens
+  MazeView view;
+  // the order the searches add the neighbors of a node to the worklist
+  static final int[] SEARCH_ORDER = { MazeGrid.LEFT, MazeGrid.RIGHT, MazeGrid.BOTTOM,
+      MazeGrid.TOP };
+  // mazes with more cells than this are solved in the background when the
+  // player wins, instead of on the event thread
+  static final int INLINE_SOLVE_CELLS = 100000;
+  // the side of the window in pixels for mazes too large to draw whole
+  static final int WINDOW_PIXELS = 800;
+
   /**
    * constructor to test setMaze.
    * 
@@ -191,6 +118,7 @@ class Maze extends World {
     this.rand = rand;
     this.height = height;
     this.width = width;
+    this.resetSearch();
 
     // initializes nodes and edges
     this.setMaze();
@@ -209,6 +137,7 @@ class Maze extends World {
   Maze(int height, int width) {
     this.height = height;
     this.width = width;
+    this.resetSearch();
     // initializes nodes and edges
     this.setMaze();
     // sorts edges by their random weights
@@ -216,7 +145,7 @@ class Maze extends World {
     // creates a minimal spanning tree of the edges
     this.createMST();
     // creates the final edges by removing the minimal spanning tree's edges
-    this.edges.removeAll(this.mst);
+    this.removeMST();
 
     // the node the user uses located at the beginning of the maze
     this.player = this.nodes.get(0);
@@ -226,6 +155,165 @@ class Maze extends World {
 
   }
 
+  /**
+   * random maze constructor with a given height, width and generation algorithm.
+   * Pressing "r" generates the new maze with the same algorithm.
+   * 
+   * @param height    of the maze.
+   * @param width     of the maze.
+   * @param generator the algorithm that carves the maze.
+   */
+  Maze(int height, int width, MazeGenerator generator) {
+    this(height, width, new Random(), generator);
+  }
+
+  /**
+   * maze constructor with a given height, width, generation algorithm and source
+   * of randomness.
+   * 
+   * @param height    of the maze.
+   * @param width     of the maze.
+   * @param rand      the source of every random choice.
+   * @param generator the algorithm that carves the maze.
+   */
+  Maze(int height, int width, Random rand, MazeGenerator generator) {
+    this(new MazeGrid(height, width, rand, generator));
+    this.rand = rand;
+    this.generator = generator;
+  }
+
+  /**
+   * random maze constructor with a given height, width and seed. The weight of
+   * every edge is a hash of the seed and the edge, so the same seed always gives
+   * the same maze. Pressing "r" generates the next maze from a Random seeded by
+   * the same seed.
+   * 
+   * @param height of the maze.
+   * @param width  of the maze.
+   * @param seed   the seed of the edge weights.
+   */
+  Maze(int height, int width, long seed) {
+    this(new MazeGrid(height, width, seed));
+    this.rand = new Random(seed);
+    this.generator = new SeededKruskalGenerator();
+    this.seed = seed;
+  }
+
+  /**
+   * constructor that plays the maze saved in a maze file, copied onto the heap.
+   * 
+   * @param file the opened file
+   */
+  Maze(MazeFile file) {
+    this(file.toGrid());
+    this.seed = file.seed;
+  }
+
+  /**
+   * constructor that makes the maze described by an already generated grid. The
+   * nodes, walls and passages are views over the grid that are only built when
+   * they are asked for.
+   * 
+   * @param grid the generated maze.
+   */
+  Maze(MazeGrid grid) {
+    this.height = grid.height;
+    this.width = grid.width;
+    this.resetSearch();
+    this.useGrid(grid);
+  }
+
+  /**
+   * replaces the nodes, walls and passages with the given grid. Playing,
+   * drawing and solving the maze only read the grid, so the lists are left
+   * empty until nodes(), edges() or mst() builds them.
+   * 
+   * @param grid the generated maze.
+   */
+  void useGrid(MazeGrid grid) {
+    this.grid = grid;
+    this.nodes = null;
+    this.views = null;
+    this.edges = null;
+    this.mst = null;
+
+    // the node the user uses located at the beginning of the maze
+    this.player = this.nodeAt(0);
+
+    // adds the first node to the worklist
+    this.workList.add(this.nodeAt(0));
+  }
+
+  /**
+   * returns the number of cells of the maze.
+   */
+  int cells() {
+    return this.width * this.height;
+  }
+
+  /**
+   * returns the node of the given cell. A maze built from a grid makes the
+   * node the first time it is asked for, without its neighbor links.
+   * 
+   * @param cell the id of the cell
+   * @return the node of the cell
+   */
+  Node nodeAt(int cell) {
+    if (this.nodes != null) {
+      return this.nodes.get(cell);
+    }
+    if (this.views == null) {
+      this.views = new HashMap<Integer, Node>();
+    }
+    Node nd = this.views.get(cell);
+    if (nd == null) {
+      nd = new Node(cell / this.height, cell % this.height);
+      this.views.put(cell, nd);
+    }
+    return nd;
+  }
+
+  /**
+   * returns every node, linked to its neighbors, building the list the first
+   * time it is asked for. The nodes already handed out by nodeAt are reused.
+   */
+  ArrayList<Node> nodes() {
+    if (this.nodes == null) {
+      ArrayList<Node> board = new ArrayList<Node>(this.cells());
+      for (int cell = 0; cell < this.cells(); cell++) {
+        board.add(this.nodeAt(cell));
+      }
+      for (int cell = 0; cell < board.size(); cell++) {
+        board.get(cell).setNode(board, cell, this.height, this.width);
+      }
+      this.nodes = board;
+      this.views = null;
+    }
+    return this.nodes;
+  }
+
+  /**
+   * returns the walls of the maze, building the list the first time it is
+   * asked for.
+   */
+  ArrayList<Edge> edges() {
+    if (this.edges == null) {
+      this.edges = this.grid.walls(this.nodes());
+    }
+    return this.edges;
+  }
+
+  /**
+   * returns the passages of the maze, building the list the first time it is
+   * asked for.
+   */
+  ArrayList<Edge> mst() {
+    if (this.mst == null) {
+      this.mst = this.grid.passages(this.nodes());
+    }
+    return this.mst;
+  }
+
   /**
    * initializes nodes and edges.
    */
@@ -238,11 +326,12 @@ class Maze extends World {
 
     for (int i = 0; i < this.nodes.size(); i++) {
       if (i < (this.height * (this.width - 1))) {
-        this.edges.add(
-            new Edge(this.nodes.get(i), this.nodes.get(i + this.height), rand.nextInt(1000) + 1));
+        this.edges.add(new Edge(this.nodes.get(i), this.nodes.get(i + this.height),
+            rand.nextInt(MazeGrid.MAX_WEIGHT) + 1));
       }
       if ((i + 1) % this.height != 0) {
-        this.edges.add(new Edge(this.nodes.get(i), this.nodes.get(i + 1), rand.nextInt(1000) + 1));
+        this.edges.add(new Edge(this.nodes.get(i), this.nodes.get(i + 1),
+            rand.nextInt(MazeGrid.MAX_WEIGHT) + 1));
       }
     }
 
@@ -253,40 +342,23 @@ class Maze extends World {
   }
 
   /**
-   * makes initial representations of the posn's of the edges and then performs
-   * kruskal's algorithm
+   * puts every node in a set of its own and then performs kruskal's algorithm
    */
   public void createMST() {
     mst = new ArrayList<Edge>();
-    map = new HashMap<Posn, Posn>();
-
-    // makes initial representations of the posn's of the edges
-    for (int i = 0; i < this.nodes.size(); i++) {
-      map.put(this.nodes.get(i).pos, this.nodes.get(i).pos);
-    }
+    sets = new DisjointSet(this.height * this.width);
+    grid = new MazeGrid(this.height, this.width);
 
     int numEdges = 0;
     int numVertices = 0;
 
-    // ALTERNATIVE SOLUTION
-    // prim's algorithm
-    /*
-     * // continues to adjust the MST for (int i = 0; i < edges.size(); i++) { Edge
-     * ed = this.edges.get(i); Posn p1 = ed.first.pos; Posn p2 = ed.second.pos;
-     *
-     * if (!this.find(p1).equals(this.find(p2))) { mst.add(ed);
-     * this.map.put(this.find(p1), this.find(p2)); } }
-     */
-
     // kruskal's algorithm
-    while (numEdges < edges.size() - 1 && numVertices < (height * width)) {
+    while (numEdges < edges.size() && numVertices < (height * width) - 1) {
       Edge ed = this.edges.get(numEdges);
-      Posn p1 = ed.first.pos;
-      Posn p2 = ed.second.pos;
 
-      if (!this.find(p1).equals(this.find(p2))) {
+      if (this.sets.union(this.cellOf(ed.first), this.cellOf(ed.second))) {
         mst.add(ed);
-        this.map.put(this.find(p1), this.find(p2));
+        this.grid.carve(this.cellOf(ed.first), this.directionOf(ed.first, ed.second));
         numVertices++;
       }
       numEdges++;
@@ -295,72 +367,167 @@ class Maze extends World {
   }
 
   /**
-   * finds if the given Posn is in the map.
+   * removes the minimal spanning tree's edges from edges, leaving only the walls.
+   * kruskal's algorithm already carved every edge it picked out of the grid, so
+   * one pass over edges keeps the ones whose wall is still standing
+   */
+  public void removeMST() {
+    int walls = 0;
+    for (int i = 0; i < this.edges.size(); i++) {
+      Edge cur = this.edges.get(i);
+      if (this.grid.hasWall(this.cellOf(cur.first), this.directionOf(cur.first, cur.second))) {
+        this.edges.set(walls, cur);
+        walls++;
+      }
+    }
+    this.edges.subList(walls, this.edges.size()).clear();
+  }
+
+  /**
+   * returns the id of the given node, which is its index in nodes.
+   * 
+   * @param n the node
+   * @return the id of the node.
+   */
+  int cellOf(Node n) {
+    return n.x * this.height + n.y;
+  }
+
+  /**
+   * returns the direction of the second node from the first one.
    * 
-   * @param p the posn to be found
-   * @return the posn within the map.
+   * @param from the first node
+   * @param to   the second node, next to the first one
+   * @return one of MazeGrid.RIGHT, BOTTOM, LEFT or TOP
    */
-  public Posn find(Posn p) {
-    if (map.get(p).equals(p)) {
-      return map.get(p);
+  int directionOf(Node from, Node to) {
+    if (to.x > from.x) {
+      return MazeGrid.RIGHT;
+    }
+    else if (to.x < from.x) {
+      return MazeGrid.LEFT;
+    }
+    else if (to.y > from.y) {
+      return MazeGrid.BOTTOM;
     }
     else {
-      return find(map.get(p));
+      return MazeGrid.TOP;
     }
   }
 
   /**
-   * sorts edges by their random weights
+   * checks if there is a passage from the given node in the given direction.
+   * 
+   * @param n   the node to move from
+   * @param dir one of MazeGrid.RIGHT, BOTTOM, LEFT or TOP
+   * @return true if the neighbor in that direction can be reached
    */
-  public void sortEdges() {
-    this.edges.sort(new EdgeComparator());
+  boolean canMove(Node n, int dir) {
+    return this.canMove(this.cellOf(n), dir);
   }
 
   /**
-   * creates the world scene for the maze
+   * checks if there is a passage from the given cell in the given direction.
+   * Before the maze is carved every wall is standing.
+   * 
+   * @param cell the cell to move from
+   * @param dir  one of MazeGrid.RIGHT, BOTTOM, LEFT or TOP
+   * @return true if the neighbor in that direction can be reached
    */
-  public WorldScene makeScene() {
-    int nodeS = 1275 / (this.width + this.height);
+  boolean canMove(int cell, int dir) {
+    return this.grid != null && this.grid.canMove(cell, dir);
+  }
 
-    WorldScene sc = new WorldScene(this.width * nodeS * 2, this.height * nodeS * 2);
+  /**
+   * sorts edges by their random weights. Weights from 0 to MazeGrid.MAX_WEIGHT
+   * are counted into place in linear time, keeping equal weights in the order
+   * they were in, anything else falls back to comparing edges
+   */
+  public void sortEdges() {
+    int[] start = new int[MazeGrid.MAX_WEIGHT + 2];
+    for (Edge cur : this.edges) {
+      if (cur.weight < 0 || cur.weight > MazeGrid.MAX_WEIGHT) {
+        this.edges.sort(new EdgeComparator());
+        return;
+      }
+      start[cur.weight + 1]++;
+    }
 
-    WorldImage background = // new RectangleImage(1280, 1280, "solid", Color.LIGHT_GRAY);
-        new RectangleImage(this.width * nodeS * 2, this.height * nodeS * 2, "solid",
-            Color.LIGHT_GRAY);
+    // turns the counts into the position of the first edge of each weight
+    for (int w = 1; w < start.length; w++) {
+      start[w] += start[w - 1];
+    }
 
-    WorldImage tl = new RectangleImage(nodeS, nodeS, "solid", Color.green);
-    WorldImage br = new RectangleImage(nodeS, nodeS, "solid", Color.magenta);
-    sc.placeImageXY(background, 0, 0);
+    Edge[] sorted = new Edge[this.edges.size()];
+    for (Edge cur : this.edges) {
+      sorted[start[cur.weight]++] = cur;
+    }
+    for (int i = 0; i < sorted.length; i++) {
+      this.edges.set(i, sorted[i]);
+    }
+  }
 
-    sc.placeImageXY(tl, nodeS / 2, nodeS / 2);
-    sc.placeImageXY(br, nodeS * this.width - nodeS / 2, nodeS * this.height - nodeS / 2);
+  /**
+   * returns the width of a cell in pixels when the whole maze is drawn.
+   */
+  int cellPixels() {
+    return 1275 / (this.width + this.height);
+  }
 
-    for (int i = 0; i < this.edges.size(); i++) {
-      Edge cur = this.edges.get(i);
+  /**
+   * checks if the whole maze fits the window: a cell needs one pixel for its
+   * wall and at least one for its inside.
+   */
+  boolean drawnWhole() {
+    return this.cellPixels() >= 2;
+  }
 
-      if (new Posn(0, 1).equals(distanceFromPosn(cur.first, cur.second))) {
-        WorldImage line = new RectangleImage(nodeS, 1, "solid", Color.black);
-        sc.placeImageXY(line, nodeS * cur.second.x + nodeS / 2, nodeS * cur.second.y);
-      }
-      else if (new Posn(1, 0).equals(distanceFromPosn(cur.first, cur.second))) {
-        WorldImage line = new RectangleImage(1, nodeS, "solid", Color.black);
-        sc.placeImageXY(line, nodeS * cur.second.x, nodeS * cur.second.y + nodeS / 2);
-      }
+  /**
+   * returns the width of the window the maze is played in, which the camera
+   * fills when it is on. A maze too large to draw whole gets a window of
+   * WINDOW_PIXELS instead.
+   */
+  int windowWidth() {
+    if (!this.drawnWhole()) {
+      return WINDOW_PIXELS;
     }
+    return this.width * this.cellPixels();
+  }
 
-    for (int i = 0; i < this.movements.size(); i++) {
-      WorldImage node = new RectangleImage(nodeS - 1, nodeS - 1, "solid", Color.cyan);
-      sc.placeImageXY(node, nodeS * this.movements.get(i).x + nodeS / 2,
-          nodeS * this.movements.get(i).y + nodeS / 2);
+  /**
+   * returns the height of the window the maze is played in, which the camera
+   * fills when it is on. A maze too large to draw whole gets a window of
+   * WINDOW_PIXELS instead.
+   */
+  int windowHeight() {
+    if (!this.drawnWhole()) {
+      return WINDOW_PIXELS;
+    }
+    return this.height * this.cellPixels();
+  }
 
+  /**
+   * creates the world scene for the maze
+   */
+  public WorldScene makeScene() {
+    if (this.view == null && !this.drawnWhole()) {
+      // a maze too large to draw whole is only ever drawn through the camera
+      this.view = new MazeView(this, this.windowWidth(), this.windowHeight());
+    }
+    if (this.view != null) {
+      WorldScene sc = new WorldScene(this.windowWidth(), this.windowHeight());
+      sc.placeImageXY(this.view.render(), this.windowWidth() / 2, this.windowHeight() / 2);
+      return sc;
     }
 
-    for (int i = 0; i < this.solution.size(); i++) {
-      WorldImage node = new RectangleImage(nodeS - 1, nodeS - 1, "solid", Color.blue);
-      sc.placeImageXY(node, nodeS * this.solution.get(i).x + nodeS / 2,
-          nodeS * this.solution.get(i).y + nodeS / 2);
+    int nodeS = this.cellPixels();
+
+    WorldScene sc = new WorldScene(this.width * nodeS * 2, this.height * nodeS * 2);
+
+    // the walls and the search come from the cached layer, which only draws
+    // what changed since the last frame
+    sc.placeImageXY(this.layer.update(nodeS), this.width * nodeS / 2, this.height * nodeS / 2);
 
-    }
     WorldImage playerN = new RectangleImage(nodeS - 1, nodeS - 1, "solid", Color.black);
     sc.placeImageXY(playerN, nodeS * this.player.x + nodeS / 2, nodeS * this.player.y + nodeS / 2);
 
@@ -372,50 +539,31 @@ class Maze extends World {
    */
   public void onKeyEvent(String k) {
     if (k.equals("left")) {
-      for (Edge cur : this.mst) {
-        if ((this.player.left.equals(cur.first) && this.player.equals(cur.second))
-            || (player.left.equals(cur.second) && player.equals(cur.first))) {
-          this.movements.add(this.player);
-          this.player = this.player.left;
-        }
+      if (this.canMove(this.player, MazeGrid.LEFT)) {
+        this.movements.add(this.player);
+        this.player = this.neighbor(this.player, MazeGrid.LEFT);
       }
-
     }
 
     if (k.equals("right")) {
-      for (Edge cur : this.mst) {
-        if ((this.player.right.equals(cur.first) && this.player.equals(cur.second))
-            || (player.right.equals(cur.second) && player.equals(cur.first))) {
-          this.movements.add(this.player);
-          this.player = this.player.right;
-
-        }
+      if (this.canMove(this.player, MazeGrid.RIGHT)) {
+        this.movements.add(this.player);
+        this.player = this.neighbor(this.player, MazeGrid.RIGHT);
       }
-
     }
 
     if (k.equals("up")) {
-      for (Edge cur : this.mst) {
-        if ((this.player.top.equals(cur.first) && this.player.equals(cur.second))
-            || (player.top.equals(cur.second) && player.equals(cur.first))) {
-          this.movements.add(this.player);
-          this.player = this.player.top;
-
-        }
+      if (this.canMove(this.player, MazeGrid.TOP)) {
+        this.movements.add(this.player);
+        this.player = this.neighbor(this.player, MazeGrid.TOP);
       }
-
     }
 
     if (k.equals("down")) {
-      for (Edge cur : this.mst) {
-        if ((this.player.bottom.equals(cur.first) && this.player.equals(cur.second))
-            || (player.bottom.equals(cur.second) && player.equals(cur.first))) {
-          this.movements.add(this.player);
-          this.player = this.player.bottom;
-
-        }
+      if (this.canMove(this.player, MazeGrid.BOTTOM)) {
+        this.movements.add(this.player);
+        this.player = this.neighbor(this.player, MazeGrid.BOTTOM);
       }
-
     }
 
     if (k.equals("d")) {
@@ -426,18 +574,42 @@ class Maze extends World {
       this.breadthInit = !this.breadthInit;
     }
 
+    if (k.equals("s")) {
+      this.solveInBackground();
+    }
+
+    if (k.equals("v")) {
+      if (this.view == null) {
+        this.view = new MazeView(this, this.windowWidth(), this.windowHeight());
+      }
+      else if (this.drawnWhole()) {
+        this.view = null;
+      }
+    }
+
+    if (this.view != null) {
+      this.moveView(k);
+    }
+
     if (k.equals("r")) {
+      this.stopBackground();
       this.nodes = new ArrayList<Node>();
       this.solution = new ArrayList<Node>();
       this.movements = new ArrayList<Node>();
       this.workList = new ArrayDeque<Node>();
-      this.cameFromEdge = new HashMap<Node, Edge>();
 
       this.depthInit = false;
       this.breadthInit = false;
 
       this.edges = new ArrayList<Edge>();
 
+      this.resetSearch();
+
+      if (this.generator != null) {
+        this.useGrid(new MazeGrid(this.height, this.width, this.rand, this.generator));
+        return;
+      }
+
       // initializes nodes and edges
       this.setMaze();
       // sorts edges by their random weights
@@ -445,7 +617,7 @@ class Maze extends World {
       // creates a minimal spanning tree of the edges
       this.createMST();
       // creates the final edges by removing the minimal spanning tree's edges
-      this.edges.removeAll(this.mst);
+      this.removeMST();
 
       // the node the user uses located at the beginning of the maze
       this.player = this.nodes.get(0);
@@ -456,78 +628,235 @@ class Maze extends World {
 
   }
 
+  /**
+   * makes a renderer that draws the maze with its search and solution without
+   * a window, for saving big mazes as images.
+   *
+   * @param cellSize the width of a cell in pixels, walls included
+   * @return the renderer, with the cells of movements and solution marked
+   */
+  MazeRenderer renderer(int cellSize) {
+    MazeRenderer renderer = new MazeRenderer(this.grid, cellSize);
+    for (Node nd : this.movements) {
+      renderer.explore(this.cellOf(nd));
+    }
+    for (Node nd : this.solution) {
+      renderer.solve(this.cellOf(nd));
+    }
+    return renderer;
+  }
+
+  /**
+   * writes the maze to the stream in the format of MazeFile.
+   * 
+   * @param out the stream to write to, which is not closed
+   */
+  void save(OutputStream out) throws IOException {
+    MazeFile.write(this.grid, this.seed, this.generatorId(), out);
+  }
+
+  /**
+   * writes the maze to the stream as a MazeArchive of compressed tiles.
+   * 
+   * @param tileSize the number of cells on a side of a tile
+   * @param out      the stream to write to, which is not closed
+   */
+  void archive(int tileSize, OutputStream out) throws IOException {
+    MazeArchive.write(this.grid, this.seed, this.generatorId(), tileSize, out);
+  }
+
+  /**
+   * returns the MazeFile id of the generator of the maze.
+   */
+  int generatorId() {
+    if (this.generator == null) {
+      return MazeFile.KRUSKAL;
+    }
+    return MazeFile.idOf(this.generator);
+  }
+
+  /**
+   * zooms the camera with "=" and "-", pans it with "i", "j", "k" and "l" and
+   * centers it on the player again with "c".
+   *
+   * @param k the key that was pressed
+   */
+  void moveView(String k) {
+    if (k.equals("=")) {
+      this.view.zoomIn();
+    }
+    else if (k.equals("-")) {
+      this.view.zoomOut();
+    }
+    else if (k.equals("i")) {
+      this.view.pan(0, -1);
+    }
+    else if (k.equals("j")) {
+      this.view.pan(-1, 0);
+    }
+    else if (k.equals("k")) {
+      this.view.pan(0, 1);
+    }
+    else if (k.equals("l")) {
+      this.view.pan(1, 0);
+    }
+    else if (k.equals("c")) {
+      this.view.follow();
+    }
+  }
+
   /**
    * searches for a path using breadth or depth algorithm based on whether the
-   * depthInit boolean or breadthInit boolean has been made to true
+   * depthInit boolean or breadthInit boolean has been made to true. An
+   * animated search that is still running is ended first, and visited,
+   * cameFrom and path are reset, so afterwards they only hold this search.
    */
   public ArrayList<Node> getSolution() {
-    ArrayList<Node> tempMovements = this.movements;
+    this.resetSearch();
+    VisitedSet seen = this.visited;
 
     this.solution = new ArrayList<Node>();
-    this.movements = new ArrayList<Node>();
-    this.cameFromEdge = new HashMap<Node, Edge>();
     this.workList = new ArrayDeque<Node>();
-    Node nd;
+    int goal = this.cells() - 1;
 
-    this.workList.add(this.nodes.get(0));
+    // the search walks the cells the same way expand does, but keeps them on a
+    // stack of cell ids so that only the nodes of the path are made
+    int[] stack = new int[this.cells() + 1];
+    int size = 0;
+    stack[size] = 0;
+    size++;
 
-    while (this.workList.size() > 0) {
-      nd = this.workList.removeLast();
+    while (size > 0) {
+      size--;
+      int cell = stack[size];
 
-      if (this.movements.contains(nd)) {
+      if (seen.contains(cell)) {
         // do nothing
       }
-      else if (nd.equals(this.nodes.get(this.nodes.size() - 1))) {
-        searchHelper(this.cameFromEdge, nd);
-        this.workList.clear();
+      else if (cell == goal) {
+        searchHelper(this.nodeAt(cell));
+        size = 0;
       }
       else {
-        for (Edge cur : this.mst) {
-          if ((nd.left.equals(cur.first) && nd.equals(cur.second))
-              || (nd.left.equals(cur.second) && nd.equals(cur.first))) {
-            this.workList.add(nd.left);
-
-            if (!this.cameFromEdge.containsKey(nd.left)) {
-              this.cameFromEdge.put(nd.left, new Edge(cur.second, cur.first, cur.weight));
+        for (int dir : SEARCH_ORDER) {
+          if (this.canMove(cell, dir)) {
+            int next = this.grid.neighbor(cell, dir);
+            if (size == stack.length) {
+              stack = Arrays.copyOf(stack, size * 2);
+            }
+            stack[size] = next;
+            size++;
+            if (this.cameFrom[next] < 0) {
+              this.cameFrom[next] = cell;
             }
-
           }
+        }
+        seen.add(cell);
+      }
+    }
 
-          if ((nd.right.equals(cur.first) && nd.equals(cur.second))
-              || ((nd.right.equals(cur.second)) && (nd.equals(cur.first)))) {
-            this.workList.add(nd.right);
+    return this.solution;
+  }
 
-            if (!this.cameFromEdge.containsKey(nd.right)) {
-              this.cameFromEdge.put(nd.right, cur);
-            }
+  /**
+   * finds the path from the first to the last node with one of the strategies
+   * of GridSearch.
+   * 
+   * @param strategy one of the strategies of GridSearch, such as A_STAR
+   * @return the nodes of the path, from the last node back to the first
+   */
+  public ArrayList<Node> getSolution(int strategy) {
+    int[] cells = new GridSearch(this.grid).search(0, this.cells() - 1, strategy);
 
-          }
+    this.solution = new ArrayList<Node>();
+    System.arraycopy(cells, 0, this.path, 0, cells.length);
+    this.pathLength = cells.length;
+    for (int cell : cells) {
+      this.solution.add(this.nodeAt(cell));
+    }
+    return this.solution;
+  }
+
+  /**
+   * finds the path between any two nodes from the tree index of the maze,
+   * without searching. The index is built on the first call for every maze and
+   * reused by the calls after it.
+   * 
+   * @param from the node the path starts at
+   * @param to   the node the path ends at
+   * @return the nodes of the path, from the end back to the start
+   */
+  public ArrayList<Node> pathBetween(Node from, Node to) {
+    if (this.tree == null || this.tree.grid != this.grid) {
+      this.tree = new TreeIndex(this.grid, 0);
+    }
 
-          if ((nd.bottom.equals(cur.first) && nd.equals(cur.second))
-              || (nd.bottom.equals(cur.second) && nd.equals(cur.first))) {
-            this.workList.add(nd.bottom);
+    ArrayList<Node> result = new ArrayList<Node>();
+    for (int cell : this.tree.path(this.cellOf(from), this.cellOf(to))) {
+      result.add(this.nodeAt(cell));
+    }
+    return result;
+  }
 
-            if (!this.cameFromEdge.containsKey(nd.bottom)) {
-              this.cameFromEdge.put(nd.bottom, cur);
-            }
+  /**
+   * returns the number of steps from the given node to every node, computed on
+   * the common pool.
+   * 
+   * @param source the node the distances are measured from
+   * @return the distance of every node, by its index in nodes
+   */
+  public int[] distancesFrom(Node source) {
+    return new DistanceField(this.grid).compute(this.cellOf(source));
+  }
 
-          }
+  /**
+   * returns the difficulty metrics of the maze.
+   */
+  public MazeMetrics metrics() {
+    return new MazeMetrics(this.grid);
+  }
 
-          if (((nd.top.equals(cur.first)) && (nd.equals(cur.second)))
-              || ((nd.top.equals(cur.second)) && (nd.equals(cur.first)))) {
-            this.workList.add(nd.top);
-            if (!this.cameFromEdge.containsKey(nd.top)) {
-              this.cameFromEdge.put(nd.top, new Edge(cur.second, cur.first, cur.weight));
-            }
-          }
+  /**
+   * adds every neighbor that can be reached from the given node to the worklist
+   * and remembers the edge each of them was first reached from
+   * 
+   * @param nd the node being searched from
+   */
+  void expand(Node nd) {
+    for (int dir : SEARCH_ORDER) {
+      this.reach(nd, dir);
+    }
+  }
 
-        }
-        this.movements.add(nd);
+  /**
+   * adds the neighbor in the given direction to the worklist if there is a
+   * passage to it
+   * 
+   * @param from the node being searched from
+   * @param dir  the direction of the neighbor
+   */
+  void reach(Node from, int dir) {
+    if (this.canMove(from, dir)) {
+      Node to = this.neighbor(from, dir);
+      this.workList.add(to);
+
+      int cell = this.cellOf(to);
+      if (this.cameFrom[cell] < 0) {
+        this.cameFrom[cell] = this.cellOf(from);
       }
     }
+  }
 
-    this.movements = tempMovements;
-    return this.solution;
+  /**
+   * returns the node next to the given one in the given direction, which must
+   * be inside the maze.
+   * 
+   * @param n   the node
+   * @param dir one of MazeGrid.RIGHT, BOTTOM, LEFT or TOP
+   * @return the neighbor of the node
+   */
+  Node neighbor(Node n, int dir) {
+    return this.nodeAt(this.grid.neighbor(this.cellOf(n), dir));
   }
 
   /**
@@ -547,29 +876,97 @@ class Maze extends World {
    * helper function for the method search that adds the correct nodes to the
    * solution
    * 
-   * @param cameFromEdge contains the nodes and edges that will be used to search
-   * @param next         the next node to search.
+   * @param next the node the search ended at.
    */
-  void searchHelper(HashMap<Node, Edge> cameFromEdge, Node next) {
-    this.solution.add(next);
-    boolean temp = true;
-    if (next.equals(this.nodes.get(0))) {
-      temp = false;
+  void searchHelper(Node next) {
+    this.pathLength = this.tracePath(this.cellOf(next));
+    for (int i = 0; i < this.pathLength; i++) {
+      this.solution.add(this.nodeAt(this.path[i]));
     }
+  }
 
-    else {
-      searchHelper(cameFromEdge, cameFromEdge.get(next).first);
+  /**
+   * follows cameFrom from the given cell back to the first cell and writes the
+   * cells it passes through into path
+   * 
+   * @param goal the cell the search ended at
+   * @return the number of cells in the path
+   */
+  int tracePath(int goal) {
+    int length = 0;
+    int cell = goal;
+    this.path[length] = cell;
+    length++;
+
+    while (cell != 0) {
+      cell = this.cameFrom[cell];
+      if (cell < 0) {
+        throw new IllegalStateException("the search never reached cell " + goal);
+      }
+      this.path[length] = cell;
+      length++;
     }
+    return length;
   }
 
   /**
-   * checks if the player reached the end of the maze
+   * forgets everything a previous search found
    */
-  public WorldEnd worldEnds() {
-    if (this.player.x == this.nodes.get(this.nodes.size() - 1).x
-        && this.player.y == this.nodes.get(this.nodes.size() - 1).y) {
+  void resetSearch() {
+    int cells = this.height * this.width;
+    this.visited = new VisitedSet(cells);
+    this.cameFrom = new int[cells];
+    Arrays.fill(this.cameFrom, -1);
+    this.path = new int[cells];
+    this.pathLength = 0;
+  }
 
+  /**
+   * starts a breadth-first search for the solution on a thread of its own,
+   * unless one is already running. makeScene draws how far it got. A maze that
+   * has not been carved into a grid yet is solved inline instead.
+   */
+  void solveInBackground() {
+    if (this.grid == null) {
       this.solution = this.getSolution();
+    }
+    else if (this.background == null || this.background.grid != this.grid) {
+      this.stopBackground();
+      this.background = new BackgroundSolver(this.grid, 0, this.cells() - 1, false);
+      this.background.start();
+    }
+  }
+
+  /**
+   * stops the background search, if there is one, and forgets it.
+   */
+  void stopBackground() {
+    if (this.background != null) {
+      this.background.cancel();
+      this.background = null;
+    }
+  }
+
+  /**
+   * checks if the player reached the end of the maze. Large mazes are solved
+   * in the background, and the world only ends once the solution is found.
+   */
+  public WorldEnd worldEnds() {
+    if (this.cellOf(this.player) == this.cells() - 1) {
+
+      if (this.cells() <= INLINE_SOLVE_CELLS || this.grid == null) {
+        this.solution = this.getSolution();
+      }
+      else {
+        this.solveInBackground();
+        if (!this.background.isSolved()) {
+          return new WorldEnd(false, this.makeScene());
+        }
+        this.solution = new ArrayList<Node>();
+        for (int cell : this.background.path) {
+          this.solution.add(this.nodeAt(cell));
+        }
+      }
 
       this.makeFinalScene("You win!");
       return new WorldEnd(true, this.makeFinalScene("You win!"));
@@ -582,8 +979,14 @@ class Maze extends World {
    */
   public WorldScene makeFinalScene(String s) {
     WorldScene sc = this.makeScene();
+    if (this.view != null) {
+      int side = Math.min(this.windowWidth(), this.windowHeight());
+      WorldImage text = new TextImage(s, Math.max(1, side / 10), Color.orange);
+      sc.placeImageXY(text, this.windowWidth() / 2, this.windowHeight() / 2);
+      return sc;
+    }
 
-    int nodeS = 1275 / (this.width + this.height);
+    int nodeS = this.cellPixels();
     int tSize = nodeS;
     if (this.width + this.height > 60) {
       tSize *= 10;
@@ -598,73 +1001,42 @@ class Maze extends World {
    *
    * onTick event function for bigbang searches for a path using breadth or depth
    * algorithm based on whether either the depthInit boolean or breadthInit
-   * boolean is true Performs the type of search intended by the user
+   * boolean is true Performs the type of search intended by the user. Every tick
+   * takes tickSteps steps, or as many steps as fit in tickNanos.
    */
   public void onTick() {
-    boolean temp;
-    if (this.depthInit || this.breadthInit) {
-      Node nd = null;
-      if (this.workList.size() > 0) {
-        if (this.depthInit) {
-          nd = this.workList.removeLast();
-        }
-        else if (this.breadthInit) {
-          nd = this.workList.removeFirst();
-        }
-
-        if (this.movements.contains(nd)) {
-          temp = true;
-        }
-        else if (nd.equals(this.nodes.get(this.nodes.size() - 1))) {
-          searchHelper(this.cameFromEdge, nd);
-          this.workList.clear();
-        }
-        else {
-          for (Edge cur : this.mst) {
-            if ((nd.left.equals(cur.first) && nd.equals(cur.second))
-                || (nd.left.equals(cur.second) && nd.equals(cur.first))) {
-              this.workList.add(nd.left);
-
-              if (!this.cameFromEdge.containsKey(nd.left)) {
-                this.cameFromEdge.put(nd.left, new Edge(cur.second, cur.first, cur.weight));
-              }
-
-            }
-
-            if ((nd.right.equals(cur.first) && nd.equals(cur.second))
-                || ((nd.right.equals(cur.second)) && (nd.equals(cur.first)))) {
-              this.workList.add(nd.right);
-
-              if (!this.cameFromEdge.containsKey(nd.right)) {
-                this.cameFromEdge.put(nd.right, cur);
-              }
-
-            }
-
-            if ((nd.bottom.equals(cur.first) && nd.equals(cur.second))
-                || (nd.bottom.equals(cur.second) && nd.equals(cur.first))) {
-              this.workList.add(nd.bottom);
-
-              if (!this.cameFromEdge.containsKey(nd.bottom)) {
-                this.cameFromEdge.put(nd.bottom, cur);
-              }
-
-            }
+    if (this.tickNanos > 0) {
+      this.stepper.stepFor(this.tickNanos);
+    }
+    else {
+      this.stepper.step(this.tickSteps);
+    }
+  }
 
-            if (((nd.top.equals(cur.first)) && (nd.equals(cur.second)))
-                || ((nd.top.equals(cur.second)) && (nd.equals(cur.first)))) {
-              this.workList.add(nd.top);
-              if (!this.cameFromEdge.containsKey(nd.top)) {
-                this.cameFromEdge.put(nd.top, new Edge(cur.second, cur.first, cur.weight));
-              }
-            }
+  /**
+   * sets how many steps of the search every tick takes.
+   * 
+   * @param steps the number of steps, at least 1
+   */
+  void setTickSteps(int steps) {
+    if (steps < 1) {
+      throw new IllegalArgumentException("a tick needs at least one step");
+    }
+    this.tickSteps = steps;
+    this.tickNanos = 0;
+  }
 
-          }
-          this.movements.add(nd);
-        }
-      }
+  /**
+   * sets how long every tick may take steps of the search for, so that big
+   * mazes are searched as fast as the frames allow.
+   * 
+   * @param nanos the time of every tick, more than 0
+   */
+  void setTickTime(long nanos) {
+    if (nanos <= 0) {
+      throw new IllegalArgumentException("a tick needs some time");
     }
-
+    this.tickNanos = nanos;
   }
 
 }
@@ -727,6 +1099,13 @@ class MazeExamples {
   Edge ee3;
   EdgeComparator edCom;
 
+  // the cameFrom of a maze that has not been searched
+  int[] unreached(int size) {
+    int[] cameFrom = new int[size];
+    Arrays.fill(cameFrom, -1);
+    return cameFrom;
+  }
+
   void initData() {
     m3 = new Maze(2, 2, new Random(31));
     m4 = new Maze(2, 4, new Random(14));
@@ -970,6 +1349,53 @@ class MazeExamples {
     t.checkExpect(this.m4.edges, this.ale3);
   }
 
+  void testSortEdgesOutOfRange(Tester t) {
+    initData();
+
+    // weights the counting sort cannot place are still sorted by comparing them
+    this.m3.edges = new ArrayList<Edge>(
+        Arrays.asList(this.ee2, new Edge(this.a, this.c, 5000), this.ee1, this.ee3));
+    this.m3.sortEdges();
+    t.checkExpect(this.m3.edges, new ArrayList<Edge>(
+        Arrays.asList(this.ee1, this.ee3, this.ee2, new Edge(this.a, this.c, 5000))));
+
+    // equal weights keep their order
+    Edge ee4 = new Edge(this.b, this.a, 8);
+    this.m3.edges = new ArrayList<Edge>(Arrays.asList(this.ee3, this.ee2, ee4, this.ee1));
+    this.m3.sortEdges();
+    t.checkExpect(this.m3.edges,
+        new ArrayList<Edge>(Arrays.asList(this.ee1, this.ee3, ee4, this.ee2)));
+  }
+
+  void testEdgeOrders(Tester t) {
+    MazeGrid g = new MazeGrid(2, 3);
+    t.checkExpect(g.numEdges(), 7);
+    t.checkExpect(g.edgeIds(), new int[] { 0, 1, 2, 4, 5, 6, 9 });
+
+    // the counting sort orders the ids the same way sorting Maze.edges does
+    Maze temp = new Maze(2, 3, new Random(60));
+    temp.sortEdges();
+    int[] expected = new int[temp.edges.size()];
+    for (int i = 0; i < expected.length; i++) {
+      Edge cur = temp.edges.get(i);
+      expected[i] = MazeGrid.edgeId(temp.cellOf(cur.first),
+          temp.directionOf(cur.first, cur.second));
+    }
+    t.checkExpect(g.edgesByWeight(new Random(60)), expected);
+
+    // a shuffle is a permutation of every edge
+    int[] shuffled = g.shuffledEdges(new Random(3));
+    Arrays.sort(shuffled);
+    t.checkExpect(shuffled, g.edgeIds());
+
+    // a shuffled maze is still perfect
+    MazeGrid s = new MazeGrid(40, 30, new Random(9), new KruskalGenerator(true));
+    ArrayList<Node> board = s.nodes();
+    t.checkExpect(s.passages(board).size(), s.cells() - 1);
+    Maze solved = new Maze(s);
+    t.checkExpect(solved.getSolution().get(0), solved.nodes().get(board.size() - 1));
+  }
+
   void testCompare(Tester t) {
     this.initData();
     t.checkExpect(this.edCom.compare(ee1, ee2), -5);
@@ -982,16 +1408,13 @@ class MazeExamples {
   void testCreateMST(Tester t) {
     initData();
     ArrayList<Edge> temp = new ArrayList<Edge>(Arrays.asList(this.e2, this.e1, this.e4));
-    HashMap<Posn, Posn> map = new HashMap<Posn, Posn>();
-    map.put(new Posn(0, 0), new Posn(0, 1));
-    map.put(new Posn(1, 0), new Posn(1, 1));
-    map.put(new Posn(0, 1), new Posn(1, 0));
-    map.put(new Posn(1, 1), new Posn(1, 1));
 
     this.m3.sortEdges();
     this.m3.createMST();
     t.checkExpect(this.m3.mst, temp);
-    t.checkExpect(this.m3.map, map);
+    for (int i = 1; i < 4; i++) {
+      t.checkExpect(this.m3.sets.connected(0, i), true);
+    }
     this.m3.edges.removeAll(this.m3.mst);
     t.checkExpect(this.m3.edges, new ArrayList<Edge>(Arrays.asList(this.e3)));
 
@@ -1022,42 +1445,176 @@ class MazeExamples {
 
     ArrayList<Edge> temp2 = new ArrayList<Edge>(
         Arrays.asList(this.e7, this.e5, this.e4b, this.e6, this.e3b, this.e1b, this.e9));
-    HashMap<Posn, Posn> map2 = new HashMap<Posn, Posn>();
-    map2.put(new Posn(0, 0), new Posn(2, 1));
-    map2.put(new Posn(1, 0), new Posn(3, 0));
-    map2.put(new Posn(2, 0), new Posn(3, 0));
-    map2.put(new Posn(3, 0), new Posn(1, 1));
-    map2.put(new Posn(0, 1), new Posn(2, 1));
-    map2.put(new Posn(1, 1), new Posn(2, 1));
-    map2.put(new Posn(2, 1), new Posn(3, 1));
-    map2.put(new Posn(3, 1), new Posn(3, 1));
-
     this.m4.sortEdges();
     this.m4.createMST();
     t.checkExpect(this.m4.mst, temp2);
-    t.checkExpect(this.m4.map, map2);
+    for (int i = 1; i < 8; i++) {
+      t.checkExpect(this.m4.sets.connected(0, i), true);
+    }
     this.m4.edges.removeAll(this.m4.mst);
     t.checkExpect(this.m4.edges, new ArrayList<Edge>(Arrays.asList(this.e10, this.e2b, this.e8)));
   }
 
-  void testFind(Tester t) {
+  void testRemoveMST(Tester t) {
+    initData();
+
+    this.m3.sortEdges();
+    this.m3.createMST();
+    this.m3.removeMST();
+    t.checkExpect(this.m3.edges, new ArrayList<Edge>(Arrays.asList(this.e3)));
+
+    this.m4.sortEdges();
+    this.m4.createMST();
+    ArrayList<Edge> expected = new ArrayList<Edge>(this.m4.edges);
+    expected.removeAll(this.m4.mst);
+    this.m4.removeMST();
+    t.checkExpect(this.m4.edges, expected);
+
+    for (int seed = 0; seed < 20; seed++) {
+      Maze temp = new Maze(7, 9, new Random(seed));
+      temp.sortEdges();
+      temp.createMST();
+      ArrayList<Edge> walls = new ArrayList<Edge>(temp.edges);
+      walls.removeAll(temp.mst);
+      temp.removeMST();
+      t.checkExpect(temp.edges.size(), walls.size());
+      t.checkExpect(temp.edges, walls);
+    }
+  }
+
+  void testDisjointSet(Tester t) {
+    DisjointSet ds = new DisjointSet(6);
+
+    t.checkExpect(ds.find(0), 0);
+    t.checkExpect(ds.find(5), 5);
+    t.checkExpect(ds.connected(0, 1), false);
+
+    t.checkExpect(ds.union(0, 1), true);
+    t.checkExpect(ds.union(2, 3), true);
+    t.checkExpect(ds.union(1, 0), false);
+    t.checkExpect(ds.connected(0, 1), true);
+    t.checkExpect(ds.connected(1, 2), false);
+
+    t.checkExpect(ds.union(3, 1), true);
+    t.checkExpect(ds.connected(0, 3), true);
+    t.checkExpect(ds.find(2), ds.find(1));
+    t.checkExpect(ds.connected(4, 5), false);
+    t.checkExpect(ds.find(4), 4);
+
+    // equal ranks hang the second tree under the first and grow its rank
+    t.checkExpect(ds.parent[3], 2);
+    t.checkExpect(ds.parent[0], 2);
+    t.checkExpect(ds.rank[2], (byte) 2);
+
+    // a long chain is flattened by finding through it
+    DisjointSet chain = new DisjointSet(5);
+    for (int i = 0; i < 4; i++) {
+      chain.parent[i] = i + 1;
+    }
+    t.checkExpect(chain.find(0), 4);
+    t.checkExpect(chain.parent[0], 2);
+    t.checkExpect(chain.parent[2], 4);
+  }
+
+  void testCellOf(Tester t) {
+    initData();
+    t.checkExpect(this.m4.cellOf(this.m4.nodes.get(0)), 0);
+    t.checkExpect(this.m4.cellOf(this.m4.nodes.get(5)), 5);
+    t.checkExpect(this.m4.cellOf(new Node(3, 1)), 7);
+  }
+
+  void testCanMove(Tester t) {
+    initData();
+
+    // m3's passages are n1-n2, n1-n3 and n3-n4, n2-n4 is a wall
+    this.m3.sortEdges();
+    this.m3.createMST();
+    Node c1 = this.m3.nodes.get(0);
+    Node c2 = this.m3.nodes.get(1);
+    Node c4 = this.m3.nodes.get(3);
+
+    t.checkExpect(this.m3.canMove(c1, MazeGrid.RIGHT), true);
+    t.checkExpect(this.m3.canMove(c1, MazeGrid.BOTTOM), true);
+    t.checkExpect(this.m3.canMove(c1, MazeGrid.LEFT), false);
+    t.checkExpect(this.m3.canMove(c1, MazeGrid.TOP), false);
+    t.checkExpect(this.m3.canMove(c2, MazeGrid.RIGHT), false);
+    t.checkExpect(this.m3.canMove(c4, MazeGrid.LEFT), false);
+    t.checkExpect(this.m3.canMove(c4, MazeGrid.TOP), true);
+
+    t.checkExpect(this.m3.directionOf(this.n1, this.n3), MazeGrid.RIGHT);
+    t.checkExpect(this.m3.directionOf(this.n3, this.n1), MazeGrid.LEFT);
+    t.checkExpect(this.m3.directionOf(this.n1, this.n2), MazeGrid.BOTTOM);
+    t.checkExpect(this.m3.directionOf(this.n2, this.n1), MazeGrid.TOP);
+
+    // walls stop the player and a move never goes further than one cell
+    this.m3.onKeyEvent("left");
+    t.checkExpect(this.m3.player, this.n1);
+    t.checkExpect(this.m3.movements, new ArrayList<Node>());
+    this.m3.onKeyEvent("down");
+    t.checkExpect(this.m3.player, this.n2);
+    this.m3.onKeyEvent("right");
+    t.checkExpect(this.m3.player, this.n2);
+    t.checkExpect(this.m3.movements, new ArrayList<Node>(Arrays.asList(this.n1)));
+  }
+
+  void testVisitedSet(Tester t) {
+    VisitedSet v = new VisitedSet(130);
+
+    t.checkExpect(v.bits.length, 3);
+    t.checkExpect(v.contains(0), false);
+    t.checkExpect(v.add(0), true);
+    t.checkExpect(v.add(0), false);
+    t.checkExpect(v.add(64), true);
+    t.checkExpect(v.add(129), true);
+    t.checkExpect(v.contains(0), true);
+    t.checkExpect(v.contains(1), false);
+    t.checkExpect(v.contains(63), false);
+    t.checkExpect(v.contains(64), true);
+    t.checkExpect(v.contains(129), true);
+    t.checkExpect(v.count(), 3);
+
+    v.clear();
+    t.checkExpect(v.contains(64), false);
+    t.checkExpect(v.count(), 0);
+  }
+
+  void testOnTickVisited(Tester t) {
     initData();
-    Maze temp = new Maze(2, 2, new Random(213));
-    HashMap<Posn, Posn> map = new HashMap<Posn, Posn>();
-    temp.map = map;
-    map.put(new Posn(0, 0), new Posn(0, 0));
-    map.put(new Posn(1, 0), new Posn(1, 0));
-    map.put(new Posn(0, 1), new Posn(0, 1));
-    map.put(new Posn(1, 1), new Posn(1, 1));
-    map.put(new Posn(2, 1), new Posn(0, 0));
-    map.put(new Posn(3, 1), new Posn(2, 1));
-
-    t.checkExpect(temp.find(new Posn(0, 0)), new Posn(0, 0));
-    t.checkExpect(temp.find(new Posn(1, 0)), new Posn(1, 0));
-    t.checkExpect(temp.find(new Posn(0, 1)), new Posn(0, 1));
-    t.checkExpect(temp.find(new Posn(1, 1)), new Posn(1, 1));
-    t.checkExpect(temp.find(new Posn(2, 1)), new Posn(0, 0));
-    t.checkExpect(temp.find(new Posn(3, 1)), new Posn(0, 0));
+
+    // cells the player walked through are not treated as already searched
+    Maze temp = new Maze(2, 2, new Random(103));
+    temp.sortEdges();
+    temp.createMST();
+    temp.edges.removeAll(temp.mst);
+    temp.workList.add(temp.nodes.get(0));
+    temp.onKeyEvent("right");
+    t.checkExpect(temp.movements, new ArrayList<Node>(Arrays.asList(this.n1)));
+
+    temp.depthInit = true;
+    temp.onTick();
+    t.checkExpect(temp.visited.contains(0), true);
+    t.checkExpect(temp.movements, new ArrayList<Node>(Arrays.asList(this.n1, this.n1)));
+    temp.onTick();
+    temp.onTick();
+    t.checkExpect(temp.solution, new ArrayList<Node>(Arrays.asList(this.n4, this.n3, this.n1)));
+    t.checkExpect(temp.visited.count(), 2);
+
+    temp.onKeyEvent("r");
+    t.checkExpect(temp.visited.count(), 0);
+  }
+
+  void testGetSolutionLarge(Tester t) {
+    Maze big = new Maze(new MazeGrid(2000, 2000, new Random(2000)));
+
+    long start = System.nanoTime();
+    ArrayList<Node> path = big.getSolution();
+    long elapsed = System.nanoTime() - start;
+
+    t.checkExpect(path.get(0), big.nodeAt(big.cells() - 1));
+    t.checkExpect(path.get(path.size() - 1), big.nodeAt(0));
+    // checking visited cells in a set keeps the search linear, so a 2000x2000
+    // maze is solved in under a second
+    t.checkNumRange(elapsed, 0L, 1000000000L);
   }
 
   void testDistanceFromPosn(Tester t) {
@@ -1148,14 +1705,14 @@ class MazeExamples {
     temp.player = temp.nodes.get(0);
     temp.workList.add(temp.nodes.get(0));
 
-    t.checkExpect(temp.cameFromEdge, new HashMap<Node, Edge>());
+    t.checkExpect(temp.cameFrom, this.unreached(temp.nodes.size()));
     t.checkExpect(temp.solution, new ArrayList<Node>());
 
     temp.onTick();
     temp.onTick();
     temp.onTick();
 
-    temp.searchHelper(temp.cameFromEdge, temp.nodes.get(3));
+    temp.searchHelper(temp.nodes.get(3));
 
     t.checkExpect(temp.solution, new ArrayList<Node>(Arrays.asList(this.n4, this.n2, this.n1)));
 
@@ -1167,19 +1724,41 @@ class MazeExamples {
     temp1.player = temp1.nodes.get(0);
     temp1.workList.add(temp1.nodes.get(0));
 
-    t.checkExpect(temp1.cameFromEdge, new HashMap<Node, Edge>());
+    t.checkExpect(temp1.cameFrom, this.unreached(temp1.nodes.size()));
     t.checkExpect(temp1.solution, new ArrayList<Node>());
 
-    temp1.onTick();
     temp1.onTick();
     temp1.onTick();
 
-    temp1.searchHelper(temp1.cameFromEdge, temp1.nodes.get(3));
+    temp1.searchHelper(temp1.nodes.get(3));
 
     t.checkExpect(temp1.solution, new ArrayList<Node>(Arrays.asList(this.n4, this.n3, this.n1)));
 
   }
 
+  void testTracePath(Tester t) {
+    initData();
+
+    Maze temp = new Maze(2, 4, new Random(1033));
+    temp.sortEdges();
+    temp.createMST();
+    temp.edges.removeAll(temp.mst);
+
+    // the path runs n8, n7, n5, n6, n4, n2, n1
+    temp.cameFrom = new int[] { -1, 0, -1, 1, 5, 3, 4, 6 };
+    t.checkExpect(temp.tracePath(7), 7);
+    t.checkExpect(temp.path, new int[] { 7, 6, 4, 5, 3, 1, 0, 0 });
+    t.checkExpect(temp.tracePath(0), 1);
+    t.checkExpect(temp.path[0], 0);
+    t.checkException(new IllegalStateException("the search never reached cell 2"), temp,
+        "tracePath", 2);
+
+    temp.getSolution();
+    t.checkExpect(temp.pathLength, 7);
+    t.checkExpect(temp.cameFrom[7], 6);
+    t.checkExpect(temp.cameFrom[2], 0);
+  }
+
   void testOnTick(Tester t) {
     initData();
 
@@ -1190,7 +1769,7 @@ class MazeExamples {
     temp.player = temp.nodes.get(0);
     temp.workList.add(temp.nodes.get(0));
 
-    t.checkExpect(temp.cameFromEdge, new HashMap<Node, Edge>());
+    t.checkExpect(temp.cameFrom, this.unreached(temp.nodes.size()));
     t.checkExpect(temp.solution, new ArrayList<Node>());
     t.checkExpect(temp.movements, new ArrayList<Node>());
 
@@ -1236,7 +1815,7 @@ class MazeExamples {
     this.n8.bottom = this.n8;
     this.n8.right = this.n8;
 
-    t.checkExpect(temp2.cameFromEdge, new HashMap<Node, Edge>());
+    t.checkExpect(temp2.cameFrom, this.unreached(temp2.nodes.size()));
     t.checkExpect(temp2.solution, new ArrayList<Node>());
     t.checkExpect(temp2.movements, new ArrayList<Node>());
 
@@ -1245,32 +1824,33 @@ class MazeExamples {
     t.checkExpect(temp2.movements, new ArrayList<Node>(Arrays.asList(this.n1)));
 
     temp2.onTick();
-    t.checkExpect(temp2.movements, new ArrayList<Node>(Arrays.asList(this.n1, this.n2)));
+    t.checkExpect(temp2.movements, new ArrayList<Node>(Arrays.asList(this.n1, this.n3)));
+
+    temp2.onTick();
+    t.checkExpect(temp2.movements, new ArrayList<Node>(Arrays.asList(this.n1, this.n3, this.n2)));
 
     temp2.onTick();
-    t.checkExpect(temp2.movements, new ArrayList<Node>(Arrays.asList(this.n1, this.n2, this.n3)));
 
     temp2.onTick();
     t.checkExpect(temp2.movements,
-        new ArrayList<Node>(Arrays.asList(this.n1, this.n2, this.n3, this.n4)));
+        new ArrayList<Node>(Arrays.asList(this.n1, this.n3, this.n2, this.n4)));
 
     temp2.onTick();
     temp2.onTick();
 
     temp2.onTick();
     t.checkExpect(temp2.movements,
-        new ArrayList<Node>(Arrays.asList(this.n1, this.n2, this.n3, this.n4, this.n6)));
+        new ArrayList<Node>(Arrays.asList(this.n1, this.n3, this.n2, this.n4, this.n6)));
 
     temp2.onTick();
-    temp2.onTick();
 
     temp2.onTick();
     t.checkExpect(temp2.movements,
-        new ArrayList<Node>(Arrays.asList(this.n1, this.n2, this.n3, this.n4, this.n6, this.n5)));
+        new ArrayList<Node>(Arrays.asList(this.n1, this.n3, this.n2, this.n4, this.n6, this.n5)));
 
     temp2.onTick();
     t.checkExpect(temp2.movements, new ArrayList<Node>(
-        Arrays.asList(this.n1, this.n2, this.n3, this.n4, this.n6, this.n5, this.n7)));
+        Arrays.asList(this.n1, this.n3, this.n2, this.n4, this.n6, this.n5, this.n7)));
 
     temp2.onTick();
     temp2.onTick();
@@ -1326,7 +1906,7 @@ class MazeExamples {
     temp.onKeyEvent("r");
 
     t.checkExpect(temp.player, this.n1);
-    t.checkExpect(temp.cameFromEdge, new HashMap<Node, Edge>());
+    t.checkExpect(temp.cameFrom, this.unreached(temp.nodes.size()));
     t.checkExpect(temp.solution, new ArrayList<Node>());
     t.checkExpect(temp.movements, new ArrayList<Node>());
     t.checkExpect(temp.edges.size(), edgesPrev.size());
@@ -1407,7 +1987,7 @@ class MazeExamples {
     temp2.onKeyEvent("r");
 
     t.checkExpect(temp2.player, this.n1);
-    t.checkExpect(temp2.cameFromEdge, new HashMap<Node, Edge>());
+    t.checkExpect(temp2.cameFrom, this.unreached(temp2.nodes.size()));
     t.checkExpect(temp2.solution, new ArrayList<Node>());
     t.checkExpect(temp2.movements, new ArrayList<Node>());
     t.checkExpect(temp2.edges.size(), edgesPrev1.size());
@@ -1482,98 +2062,1433 @@ class MazeExamples {
     int nodeS = 1275 / (this.ms1.width + this.ms1.height);
 
     WorldScene sc1 = new WorldScene(this.ms1.width * nodeS * 2, this.ms1.height * nodeS * 2);
+    sc1.placeImageXY(this.ms1.layer.update(nodeS), this.ms1.width * nodeS / 2,
+        this.ms1.height * nodeS / 2);
+    WorldImage playerN = new RectangleImage(nodeS - 1, nodeS - 1, "solid", Color.black);
+    sc1.placeImageXY(playerN, nodeS * this.ms1.player.x + nodeS / 2,
+        nodeS * this.ms1.player.y + nodeS / 2);
 
-    WorldImage background = // new RectangleImage(1280, 1280, "solid", Color.LIGHT_GRAY);
-        new RectangleImage(this.ms1.width * nodeS * 2, this.ms1.height * nodeS * 2, "solid",
-            Color.LIGHT_GRAY);
+    t.checkExpect(this.ms1.makeScene(), sc1);
+
+    int nodeS1 = 1275 / (this.ms2.width + this.ms2.height);
 
-    WorldImage tl = new RectangleImage(nodeS, nodeS, "solid", Color.green);
-    WorldImage br = new RectangleImage(nodeS, nodeS, "solid", Color.magenta);
-    sc1.placeImageXY(background, 0, 0);
+    WorldScene sc2 = new WorldScene(this.ms2.width * nodeS1 * 2, this.ms2.height * nodeS1 * 2);
+    sc2.placeImageXY(this.ms2.layer.update(nodeS1), this.ms2.width * nodeS1 / 2,
+        this.ms2.height * nodeS1 / 2);
+    WorldImage playerN2 = new RectangleImage(nodeS1 - 1, nodeS1 - 1, "solid", Color.black);
+    sc2.placeImageXY(playerN2, nodeS1 * this.ms2.player.x + nodeS1 / 2,
+        nodeS1 * this.ms2.player.y + nodeS1 / 2);
 
-    sc1.placeImageXY(tl, nodeS / 2, nodeS / 2);
-    sc1.placeImageXY(br, nodeS * this.ms1.width - nodeS / 2, nodeS * this.ms1.height - nodeS / 2);
+    t.checkExpect(this.ms2.makeScene(), sc2);
 
-    for (int i = 0; i < this.ms1.edges.size(); i++) {
-      Edge cur = this.ms1.edges.get(i);
+  }
 
-      if (new Posn(0, 1).equals(this.ms1.distanceFromPosn(cur.first, cur.second))) {
-        WorldImage line = new RectangleImage(nodeS, 1, "solid", Color.black);
-        sc1.placeImageXY(line, nodeS * cur.second.x + nodeS / 2, nodeS * cur.second.y);
+  void testMazeLayer(Tester t) {
+    Maze m = new Maze(3, 4, new Random(5));
+    MazeLayer layer = m.layer;
+
+    // before the walls are knocked down every edge is drawn
+    ComputedPixelImage all = layer.update(10);
+    t.checkExpect(all.getPixel(0, 0), MazeLayer.START);
+    t.checkExpect(all.getPixel(39, 29), MazeLayer.END);
+    t.checkExpect(all.getPixel(15, 15), MazeLayer.BACKGROUND);
+    t.checkExpect(all.getPixel(10, 15), MazeLayer.WALL);
+    t.checkExpect(all.getPixel(15, 10), MazeLayer.WALL);
+    t.checkExpect(layer.update(10), all);
+
+    // the walls are redrawn from the grid once there is one
+    m.createMST();
+    ComputedPixelImage walls = layer.update(10);
+    t.checkExpect(walls == all, false);
+    for (int cell = 0; cell < m.grid.cells(); cell++) {
+      int x = m.grid.xOf(cell) * 10;
+      int y = m.grid.yOf(cell) * 10;
+      if (m.grid.neighbor(cell, MazeGrid.RIGHT) >= 0) {
+        t.checkExpect(walls.getPixel(x + 10, y + 5).equals(MazeLayer.WALL),
+            m.grid.hasWall(cell, MazeGrid.RIGHT));
       }
-      else if (new Posn(1, 0).equals(this.ms1.distanceFromPosn(cur.first, cur.second))) {
-        WorldImage line = new RectangleImage(1, nodeS, "solid", Color.black);
-        sc1.placeImageXY(line, nodeS * cur.second.x, nodeS * cur.second.y + nodeS / 2);
+      if (m.grid.neighbor(cell, MazeGrid.BOTTOM) >= 0) {
+        t.checkExpect(walls.getPixel(x + 5, y + 10).equals(MazeLayer.WALL),
+            m.grid.hasWall(cell, MazeGrid.BOTTOM));
       }
     }
 
-    for (int i = 0; i < this.ms1.movements.size(); i++) {
-      WorldImage node = new RectangleImage(nodeS - 1, nodeS - 1, "solid", Color.cyan);
-      sc1.placeImageXY(node, nodeS * this.ms1.movements.get(i).x + nodeS / 2,
-          nodeS * this.ms1.movements.get(i).y + nodeS / 2);
+    // the search is painted into the same image one cell at a time
+    m.workList.add(m.nodes.get(0));
+    m.onKeyEvent("b");
+    m.onTick();
+    m.onTick();
+    t.checkExpect(layer.update(10), walls);
+    t.checkExpect(layer.paintedMovements, m.movements.size());
+    Node first = m.movements.get(0);
+    t.checkExpect(walls.getPixel(first.x * 10 + 5, first.y * 10 + 5), MazeLayer.EXPLORED);
+
+    for (int i = 0; i < 100; i++) {
+      m.onTick();
+    }
+    t.checkExpect(layer.update(10), walls);
+    t.checkExpect(layer.paintedSolution, m.solution.size());
+    Node last = m.solution.get(0);
+    t.checkExpect(walls.getPixel(last.x * 10 + 5, last.y * 10 + 5), MazeLayer.SOLUTION);
+
+    // a new cell size or a new maze draws everything again
+    t.checkExpect(layer.update(12) == walls, false);
+    Node second = m.solution.get(1);
+    m.onKeyEvent("r");
+    t.checkExpect(layer.update(12).getPixel(second.x * 12 + 6, second.y * 12 + 6),
+        MazeLayer.BACKGROUND);
+    t.checkExpect(layer.paintedMovements, 0);
+    t.checkExpect(layer.paintedSolution, 0);
+    t.checkException(new IllegalArgumentException("a cell needs at least two pixels"), layer,
+        "update", 1);
+
+    // mazes with 1 or 0 pixels to a cell are drawn through the camera instead,
+    // with the search and the solution showing, and "v" keeps it on
+    Maze[] tiny = { new Maze(new MazeGrid(2, 1000, new Random(6))),
+        new Maze(new MazeGrid(2, 1300, new Random(7))) };
+    for (int i = 0; i < tiny.length; i++) {
+      Maze cells = tiny[i];
+      t.checkExpect(cells.cellPixels(), 1 - i);
+      cells.onKeyEvent("b");
+      cells.stepper.step(500);
+      WorldScene sc = cells.makeScene();
+      t.checkExpect(cells.view.screenWidth, Maze.WINDOW_PIXELS);
+      t.checkExpect(cells.view.countedMovements, cells.movements.size());
+      t.checkExpect(cells.layer.image, null);
+      WorldScene expected = new WorldScene(Maze.WINDOW_PIXELS, Maze.WINDOW_PIXELS);
+      expected.placeImageXY(cells.view.image, Maze.WINDOW_PIXELS / 2, Maze.WINDOW_PIXELS / 2);
+      t.checkExpect(sc, expected);
+      cells.onKeyEvent("v");
+      t.checkExpect(cells.view != null, true);
+
+      cells.player = cells.nodeAt(cells.cells() - 1);
+      WorldEnd end = cells.worldEnds();
+      t.checkExpect(end.worldEnds, true);
+      t.checkExpect(cells.view.countedSolution, cells.solution.size());
+      t.checkExpect(cells.solution.size() > 1000, true);
+    }
+  }
 
+  void testMazeView(Tester t) {
+    Maze m = new Maze(new MazeGrid(30, 40, new Random(12)));
+    MazeView view = new MazeView(m, 64, 64);
+    t.checkConstructorException(new IllegalArgumentException("a view needs at least one pixel"),
+        "MazeView", m, 0, 64);
+
+    // 8 pixels to a cell, centered on the player in the top left corner
+    ComputedPixelImage close = view.render();
+    t.checkExpect(close.getPixel(0, 0), MazeView.OUTSIDE);
+    t.checkExpect(close.getPixel(31, 31), MazeView.OUTSIDE);
+    t.checkExpect(close.getPixel(35, 35), MazeView.PLAYER);
+    t.checkExpect(close.getPixel(32, 36), MazeLayer.START);
+    int right = m.grid.cellAt(1, 0);
+    t.checkExpect(close.getPixel(40, 36).equals(MazeLayer.WALL),
+        m.grid.hasWall(right, MazeGrid.LEFT));
+    t.checkExpect(close.getPixel(44, 36).equals(MazeLayer.BACKGROUND), true);
+
+    // every level counts the same walls, which a perfect maze has
+    // 39 * 30 + 40 * 29 - (1200 - 1) of
+    t.checkExpect(view.levels, 6);
+    for (int level = 1; level <= view.levels; level++) {
+      int sum = 0;
+      for (int count : view.walls[level]) {
+        sum += count;
+      }
+      t.checkExpect(sum, 1131);
     }
+    t.checkExpect(view.walls[6].length, 1);
 
-    for (int i = 0; i < this.ms1.solution.size(); i++) {
-      WorldImage node = new RectangleImage(nodeS - 1, nodeS - 1, "solid", Color.blue);
-      sc1.placeImageXY(node, nodeS * this.ms1.solution.get(i).x + nodeS / 2,
-          nodeS * this.ms1.solution.get(i).y + nodeS / 2);
+    // zooming out stops once one block covers the maze
+    for (int i = 0; i < 20; i++) {
+      view.zoomOut();
+    }
+    t.checkExpect(view.zoom, -6);
+    ComputedPixelImage far = view.render();
+    t.checkExpect(far.getPixel(32, 32), MazeView.PLAYER);
+    t.checkExpect(far.getPixel(33, 32), MazeView.OUTSIDE);
+    for (int i = 0; i < 20; i++) {
+      view.zoomIn();
+    }
+    t.checkExpect(view.zoom, MazeView.MAX_ZOOM);
 
+    // the search is counted into the blocks as it goes
+    view.zoom = -1;
+    m.onKeyEvent("b");
+    for (int i = 0; i < 50; i++) {
+      m.onTick();
     }
-    WorldImage playerN = new RectangleImage(nodeS - 1, nodeS - 1, "solid", Color.black);
-    sc1.placeImageXY(playerN, nodeS * this.ms1.player.x + nodeS / 2,
-        nodeS * this.ms1.player.y + nodeS / 2);
+    view.render();
+    t.checkExpect(view.countedMovements, m.movements.size());
+    t.checkExpect(view.exploredCells[6][0], view.explored.count());
+    Node seen = m.movements.get(10);
+    t.checkExpect(view.exploredCells[1][view.blockId(seen.x >> 1, seen.y >> 1, 1)] > 0, true);
+    t.checkExpect(view.image.getPixel(32 + (seen.x >> 1), 32 + (seen.y >> 1)),
+        MazeLayer.EXPLORED);
+
+    // panning moves the center a quarter of the screen, following brings it back
+    view.zoom = 2;
+    view.pan(1, 1);
+    t.checkExpect(view.centerX(), 4);
+    t.checkExpect(view.centerY(), 4);
+    view.pan(-1, -1);
+    view.pan(-1, -1);
+    t.checkExpect(view.centerX(), 0);
+    view.follow();
+    t.checkExpect(view.panX, 0);
+
+    // the keys switch the camera on and off and move it
+    m.onKeyEvent("v");
+    t.checkExpect(m.view.screenWidth, m.windowWidth());
+    t.checkExpect(m.view.screenHeight, m.windowHeight());
+    m.onKeyEvent("-");
+    t.checkExpect(m.view.zoom, 2);
+    m.onKeyEvent("l");
+    t.checkExpect(m.view.panX, 45);
+    m.onKeyEvent("c");
+    t.checkExpect(m.view.panX, 0);
+    WorldScene sc = new WorldScene(m.windowWidth(), m.windowHeight());
+    sc.placeImageXY(m.view.image, m.windowWidth() / 2, m.windowHeight() / 2);
+    t.checkExpect(m.makeScene(), sc);
+    m.onKeyEvent("v");
+    t.checkExpect(m.view, null);
+
+    // a maze with no whole pixel to a cell still opens a window to put the
+    // camera in
+    Maze huge = new Maze(new MazeGrid(600, 700, new Random(13)));
+    t.checkExpect(huge.cellPixels(), 0);
+    t.checkExpect(huge.drawnWhole(), false);
+    t.checkExpect(huge.windowWidth(), Maze.WINDOW_PIXELS);
+    t.checkExpect(huge.windowHeight(), Maze.WINDOW_PIXELS);
+    huge.onKeyEvent("v");
+    t.checkExpect(huge.view.screenWidth, Maze.WINDOW_PIXELS);
+    t.checkExpect(huge.view.screenHeight, Maze.WINDOW_PIXELS);
+    WorldScene hugeScene = huge.makeScene();
+    t.checkExpect(huge.view.image.getPixel(Maze.WINDOW_PIXELS / 2 + 3,
+        Maze.WINDOW_PIXELS / 2 + 3), MazeView.PLAYER);
+    WorldScene expected = new WorldScene(Maze.WINDOW_PIXELS, Maze.WINDOW_PIXELS);
+    expected.placeImageXY(huge.view.image, Maze.WINDOW_PIXELS / 2, Maze.WINDOW_PIXELS / 2);
+    t.checkExpect(hugeScene, expected);
+  }
 
-    t.checkExpect(this.ms1.makeScene(), sc1);
+  void testMazeRenderer(Tester t) {
+    Maze m = new Maze(new MazeGrid(30, 40, new Random(12)));
+    t.checkConstructorException(new IllegalArgumentException("a cell needs at least two pixels"),
+        "MazeRenderer", m.grid, 1);
+    t.checkConstructorException(new IllegalArgumentException("a stripe needs at least one row"),
+        "MazeRenderer", m.grid, 4, ForkJoinPool.commonPool(), 0);
+    t.checkConstructorException(
+        new IllegalArgumentException("the image would have 8589934592 pixels"), "MazeRenderer",
+        new MazeGrid(2, 1 << 16), 1 << 8);
+
+    m.onKeyEvent("b");
+    m.stepper.step(Integer.MAX_VALUE);
+    t.checkExpect(m.solution.size() > 0, true);
+
+    // the same pixels as the layer, split into stripes or not
+    m.makeScene();
+    ComputedPixelImage layer = m.layer.update(8);
+    MazeRenderer striped = new MazeRenderer(m.grid, 8, new ForkJoinPool(4), 1);
+    MazeRenderer whole = m.renderer(8);
+    for (Node nd : m.movements) {
+      striped.explore(m.cellOf(nd));
+    }
+    for (Node nd : m.solution) {
+      striped.solve(m.cellOf(nd));
+    }
+    BufferedImage image = whole.render();
+    striped.render();
+    t.checkExpect(image.getWidth(), 320);
+    t.checkExpect(image.getHeight(), 240);
+    t.checkExpect(Arrays.equals(striped.pixels, whole.pixels), true);
+    int different = 0;
+    for (int y = 0; y < 240; y++) {
+      for (int x = 0; x < 320; x++) {
+        if (image.getRGB(x, y) != layer.getPixel(x, y).getRGB()) {
+          different++;
+        }
+      }
+    }
+    t.checkExpect(different, 0);
+    t.checkExpect(whole.nanos > 0, true);
+    t.checkExpect(whole.megapixelsPerSecond() > 0, true);
+
+    // saved as a PNG file that reads back the same
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      whole.writePng(out);
+      BufferedImage read = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+      t.checkExpect(read.getRGB(0, 0), image.getRGB(0, 0));
+      t.checkExpect(read.getRGB(317, 237), image.getRGB(317, 237));
+      t.checkExpect(read.getRGB(161, 99), image.getRGB(161, 99));
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
 
-    int nodeS1 = 1275 / (this.ms2.width + this.ms2.height);
+  void testMazeFile(Tester t) {
+    try {
+      Path dir = Files.createTempDirectory("mazes");
+      Path path = dir.resolve("seeded.maze");
+      Maze m = new Maze(30, 40, 77L);
+      OutputStream out = Files.newOutputStream(path);
+      m.save(out);
+      out.close();
+      t.checkExpect(Files.size(path), (long) MazeFile.HEADER_BYTES + 30 * 10);
+
+      MazeFile file = new MazeFile(path);
+      t.checkExpect(file.width, 40);
+      t.checkExpect(file.height, 30);
+      t.checkExpect(file.seed, 77L);
+      t.checkExpect(file.generator, MazeFile.SEEDED_KRUSKAL);
+      t.checkExpect(file.segments.length, 1);
+      for (int cell = 0; cell < m.grid.cells(); cell++) {
+        t.checkExpect(file.walls(m.grid.xOf(cell), m.grid.yOf(cell)), (int) m.grid.walls[cell]);
+      }
+      t.checkExpect(file.canMove(0, 0, MazeGrid.LEFT), false);
+      t.checkException(new IllegalArgumentException("cell 40, 0 is not in the maze"), file,
+          "walls", 40, 0);
+
+      // a file mapped in segments of three rows reads the same
+      MazeFile small = new MazeFile(path, 30);
+      t.checkExpect(small.segmentRows, 3);
+      t.checkExpect(small.segments.length, 10);
+      t.checkExpect(small.toGrid().walls, m.grid.walls);
+      Maze loaded = new Maze(small);
+      t.checkExpect(loaded.seed, 77L);
+      t.checkExpect(loaded.getSolution(), m.getSolution());
+
+      // eller's algorithm writes rows without a grid, the same ones as
+      // EllerGenerator carves from the same seed
+      Path eller = dir.resolve("eller.maze");
+      out = Files.newOutputStream(eller);
+      MazeFile.writeEller(13, 9, 5L, out);
+      out.close();
+      MazeFile streamed = new MazeFile(eller);
+      t.checkExpect(streamed.generator, MazeFile.ELLER);
+      t.checkExpect(streamed.toGrid().walls,
+          new MazeGrid(9, 13, new Random(5L), new EllerGenerator()).walls);
+      t.checkExpect(MazeFile.idOf(new PrimGenerator()), MazeFile.PRIM);
+      t.checkExpect(MazeFile.idOf(new ParallelGenerator()), MazeFile.PARALLEL);
+
+      // files that are not maze files, or are cut short, are not opened
+      Path bad = dir.resolve("bad.maze");
+      Files.write(bad, new byte[MazeFile.HEADER_BYTES]);
+      t.checkConstructorException(new IOException("not a maze file"), "MazeFile", bad);
+      byte[] bytes = Files.readAllBytes(path);
+      bytes[7] = 2;
+      Files.write(bad, bytes);
+      t.checkConstructorException(new IOException("unsupported maze file version 2"),
+          "MazeFile", bad);
+      Files.write(bad, Arrays.copyOf(Files.readAllBytes(path), MazeFile.HEADER_BYTES + 10));
+      t.checkConstructorException(new IOException("the maze file is cut short"), "MazeFile",
+          bad);
+
+      Files.delete(bad);
+      Files.delete(eller);
+      Files.delete(path);
+      Files.delete(dir);
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
 
-    WorldScene sc2 = new WorldScene(this.ms2.width * nodeS1 * 2, this.ms2.height * nodeS1 * 2);
+  void testMazeArchive(Tester t) {
+    try {
+      Path path = Files.createTempFile("maze", ".archive");
+      Maze m = new Maze(30, 40, 77L);
+      OutputStream out = Files.newOutputStream(path);
+      m.archive(16, out);
+      out.close();
+
+      MazeArchive archive = new MazeArchive(path);
+      t.checkExpect(archive.width, 40);
+      t.checkExpect(archive.height, 30);
+      t.checkExpect(archive.seed, 77L);
+      t.checkExpect(archive.generator, MazeFile.SEEDED_KRUSKAL);
+      t.checkExpect(archive.tilesAcross, 3);
+      t.checkExpect(archive.tilesDown, 2);
+      t.checkExpect(archive.offsets.length, 7);
+      t.checkExpect(archive.offsets[0], (long) MazeArchive.HEADER_BYTES);
+
+      // a cell only reads its own tile and the tiles of its left and top
+      // neighbors
+      t.checkExpect(archive.walls(20, 20), (int) m.grid.walls[m.grid.cellAt(20, 20)]);
+      t.checkExpect(archive.tilesRead, 1);
+      t.checkExpect(archive.walls(16, 16), (int) m.grid.walls[m.grid.cellAt(16, 16)]);
+      t.checkExpect(archive.tilesRead, 3);
+      t.checkException(new IllegalArgumentException("cell 0, 30 is not in the maze"), archive,
+          "walls", 0, 30);
+
+      // a region reads the tiles it covers and keeps its own border closed
+      MazeGrid corner = archive.region(30, 20, 10, 10);
+      t.checkExpect(archive.tilesRead, 4);
+      t.checkExpect(corner.hasWall(0, MazeGrid.LEFT), true);
+      for (int x = 0; x < 9; x++) {
+        t.checkExpect(corner.hasWall(corner.cellAt(x, 5), MazeGrid.RIGHT),
+            m.grid.hasWall(m.grid.cellAt(30 + x, 25), MazeGrid.RIGHT));
+      }
+      t.checkException(new IllegalArgumentException("the region is not in the maze"), archive,
+          "region", 35, 0, 10, 1);
+      t.checkExpect(archive.toGrid().walls, m.grid.walls);
+      t.checkExpect(archive.tilesRead, 6);
+      archive.close();
+
+      // tiles of one cell and tiles larger than the maze read the same
+      for (int size : new int[] { 1, 7, 100 }) {
+        out = Files.newOutputStream(path);
+        MazeArchive.write(m.grid, 0, MazeFile.UNKNOWN, size, out);
+        out.close();
+        archive = new MazeArchive(path);
+        t.checkExpect(archive.toGrid().walls, m.grid.walls);
+        archive.close();
+      }
+
+      // a random maze stays near two bits a cell, a maze of only walls shrinks
+      archive = new MazeArchive(path);
+      t.checkNumRange(archive.bitsPerCell(), 1.5, 2.5);
+      archive.close();
+      out = Files.newOutputStream(path);
+      MazeArchive.write(new MazeGrid(30, 40), 0, MazeFile.UNKNOWN, 40, out);
+      out.close();
+      archive = new MazeArchive(path);
+      t.checkNumRange(archive.bitsPerCell(), 0.0, 0.5);
+      archive.close();
+
+      // a damaged index or tile is found
+      byte[] bytes = Files.readAllBytes(path);
+      Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+      t.checkConstructorException(new IOException("the maze archive is damaged"),
+          "MazeArchive", path);
+      bytes[MazeArchive.HEADER_BYTES + 3] ^= 0x55;
+      Files.write(path, bytes);
+      archive = new MazeArchive(path);
+      t.checkException(new IOException("tile 0 of the maze archive is damaged"), archive,
+          "readTile", 0);
+      archive.close();
+      Files.write(path, new byte[64]);
+      t.checkConstructorException(new IOException("not a maze archive"), "MazeArchive", path);
+      t.checkException(new IllegalArgumentException("a tile needs at least one cell"),
+          archive, "write", m.grid, 0L, 0, 0, out);
+      Files.delete(path);
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  void testMazeGrid(Tester t) {
+    MazeGrid g = new MazeGrid(2, 3);
+
+    t.checkExpect(g.cells(), 6);
+    t.checkExpect(g.cellAt(0, 0), 0);
+    t.checkExpect(g.cellAt(0, 1), 1);
+    t.checkExpect(g.cellAt(2, 1), 5);
+    t.checkExpect(g.xOf(5), 2);
+    t.checkExpect(g.yOf(5), 1);
+
+    t.checkExpect(g.neighbor(0, MazeGrid.RIGHT), 2);
+    t.checkExpect(g.neighbor(0, MazeGrid.BOTTOM), 1);
+    t.checkExpect(g.neighbor(0, MazeGrid.LEFT), -1);
+    t.checkExpect(g.neighbor(0, MazeGrid.TOP), -1);
+    t.checkExpect(g.neighbor(5, MazeGrid.RIGHT), -1);
+    t.checkExpect(g.neighbor(5, MazeGrid.BOTTOM), -1);
+    t.checkExpect(g.neighbor(5, MazeGrid.LEFT), 3);
+    t.checkExpect(g.neighbor(5, MazeGrid.TOP), 4);
+
+    t.checkExpect(g.hasWall(2, MazeGrid.LEFT), true);
+    g.carve(0, MazeGrid.RIGHT);
+    t.checkExpect(g.hasWall(0, MazeGrid.RIGHT), false);
+    t.checkExpect(g.hasWall(2, MazeGrid.LEFT), false);
+    t.checkExpect(g.hasWall(0, MazeGrid.BOTTOM), true);
+    g.carve(5, MazeGrid.TOP);
+    t.checkExpect(g.hasWall(4, MazeGrid.BOTTOM), false);
+    t.checkExpect(g.walls[0], (byte) (MazeGrid.BOTTOM | MazeGrid.LEFT | MazeGrid.TOP));
+
+    t.checkException(new IllegalArgumentException("cannot carve through the border of the maze"),
+        g, "carve", 0, MazeGrid.LEFT);
+    t.checkConstructorException(new IllegalArgumentException("a maze needs at least one cell"),
+        "MazeGrid", 0, 3);
+
+    t.checkExpect(MazeGrid.edgeCell(MazeGrid.edgeId(7, MazeGrid.BOTTOM)), 7);
+    t.checkExpect(MazeGrid.edgeDir(MazeGrid.edgeId(7, MazeGrid.BOTTOM)), MazeGrid.BOTTOM);
+    t.checkExpect(MazeGrid.edgeDir(MazeGrid.edgeId(7, MazeGrid.RIGHT)), MazeGrid.RIGHT);
+  }
+
+  void testMazeGridGenerate(Tester t) {
+    initData();
+
+    // the same seed gives the same maze as setMaze, sortEdges and createMST
+    MazeGrid g = new MazeGrid(2, 2, new Random(31));
+    t.checkExpect(g.nodes(), this.aln1);
+    t.checkExpect(g.hasWall(0, MazeGrid.BOTTOM), false);
+    t.checkExpect(g.hasWall(0, MazeGrid.RIGHT), false);
+    t.checkExpect(g.hasWall(2, MazeGrid.BOTTOM), false);
+    t.checkExpect(g.hasWall(1, MazeGrid.RIGHT), true);
+
+    ArrayList<Node> board = g.nodes();
+    t.checkExpect(g.walls(board), new ArrayList<Edge>(Arrays.asList(new Edge(this.n2, this.n4))));
+    t.checkExpect(g.passages(board), new ArrayList<Edge>(Arrays.asList(new Edge(this.n1, this.n3),
+        new Edge(this.n1, this.n2), new Edge(this.n3, this.n4))));
+
+    // a perfect maze has exactly one less passage than it has cells
+    MazeGrid big = new MazeGrid(30, 50, new Random(7));
+    ArrayList<Node> bigBoard = big.nodes();
+    t.checkExpect(big.passages(bigBoard).size(), big.cells() - 1);
+    t.checkExpect(big.walls(bigBoard).size() + big.cells() - 1, 30 * 49 + 29 * 50);
+  }
+
+  void testCreateMSTDeep(Tester t) {
+    // a find without path compression would overflow or take quadratic time on
+    // chains this long
+    int size = 10000000;
+    DisjointSet chain = new DisjointSet(size);
+    for (int i = 0; i < size - 1; i++) {
+      chain.parent[i] = i + 1;
+    }
+    t.checkExpect(chain.find(0), size - 1);
+    t.checkExpect(chain.find(1), size - 1);
 
-    WorldImage background2 = // new RectangleImage(1280, 1280, "solid", Color.LIGHT_GRAY);
-        new RectangleImage(this.ms2.width * nodeS1 * 2, this.ms2.height * nodeS1 * 2, "solid",
-            Color.LIGHT_GRAY);
+    DisjointSet unions = new DisjointSet(size);
+    boolean merged = true;
+    for (int i = 0; i < size - 1; i++) {
+      merged = merged && unions.union(i, i + 1);
+    }
+    t.checkExpect(merged, true);
+    t.checkExpect(unions.connected(0, size - 1), true);
+    t.checkExpect(unions.rank[unions.find(0)] <= 24, true);
+
+    // kruskal's algorithm over the edges carves a perfect maze into the grid
+    Maze big = new Maze(300, 300);
+    t.checkExpect(big.mst.size(), big.cells() - 1);
+    t.checkExpect(this.isPerfect(big.grid), true);
+    int open = 0;
+    for (int i = 0; i < big.cells(); i++) {
+      open += Integer.bitCount(~big.grid.walls[i] & MazeGrid.ALL);
+    }
+    t.checkExpect(open, 2 * (big.cells() - 1));
+  }
+
+  // checks that every cell of the grid can be reached from the first cell and
+  // that there are no loops
+  boolean isPerfect(MazeGrid g) {
+    int passages = 0;
+    VisitedSet seen = new VisitedSet(g.cells());
+    int[] stack = new int[g.cells()];
+    int top = 1;
+    seen.add(0);
+    while (top > 0) {
+      top--;
+      int cell = stack[top];
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        if (g.canMove(cell, dir)) {
+          passages++;
+          if (seen.add(g.neighbor(cell, dir))) {
+            stack[top] = g.neighbor(cell, dir);
+            top++;
+          }
+        }
+      }
+    }
+    return seen.count() == g.cells() && passages == 2 * (g.cells() - 1);
+  }
+
+  void testLongHeap(Tester t) {
+    LongHeap h = new LongHeap(1);
+    t.checkExpect(h.isEmpty(), true);
+    t.checkException(new IllegalStateException("the heap is empty"), h, "pop");
+
+    int[] priorities = { 5, 3, 9, 1, 3, 7, 0, 12, 4 };
+    for (int i = 0; i < priorities.length; i++) {
+      h.push(LongHeap.entry(priorities[i], i));
+    }
+    t.checkExpect(h.size, 9);
+    t.checkExpect(LongHeap.priorityOf(h.peek()), 0);
 
-    WorldImage tl2 = new RectangleImage(nodeS1, nodeS1, "solid", Color.green);
-    WorldImage br2 = new RectangleImage(nodeS1, nodeS1, "solid", Color.magenta);
-    sc2.placeImageXY(background2, 0, 0);
+    // entries come out by priority and then by id
+    int[] ids = new int[priorities.length];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = LongHeap.idOf(h.pop());
+    }
+    t.checkExpect(ids, new int[] { 6, 3, 1, 4, 8, 0, 5, 2, 7 });
+    t.checkExpect(h.isEmpty(), true);
+  }
 
-    sc2.placeImageXY(tl2, nodeS1 / 2, nodeS1 / 2);
-    sc2.placeImageXY(br2, nodeS1 * this.ms2.width - nodeS1 / 2,
-        nodeS1 * this.ms2.height - nodeS1 / 2);
+  void testGenerators(Tester t) {
+    MazeGenerator[] generators = { new KruskalGenerator(), new KruskalGenerator(true),
+        new PrimGenerator(), new BacktrackerGenerator(), new WilsonGenerator(),
+        new EllerGenerator() };
+
+    for (MazeGenerator gen : generators) {
+      t.checkExpect(this.isPerfect(new MazeGrid(1, 1, new Random(1), gen)), true);
+      t.checkExpect(this.isPerfect(new MazeGrid(1, 12, new Random(2), gen)), true);
+      t.checkExpect(this.isPerfect(new MazeGrid(12, 1, new Random(3), gen)), true);
+      t.checkExpect(this.isPerfect(new MazeGrid(31, 47, new Random(4), gen)), true);
+      t.checkExpect(this.isPerfect(new MazeGrid(300, 200, new Random(5), gen)), true);
+
+      // the same seed carves the same maze
+      t.checkExpect(new MazeGrid(20, 25, new Random(6), gen).walls,
+          new MazeGrid(20, 25, new Random(6), gen).walls);
+    }
 
-    for (int i = 0; i < this.ms2.edges.size(); i++) {
-      Edge cur = this.ms2.edges.get(i);
+    t.checkExpect(new MazeGrid(2, 2, new Random(31), new KruskalGenerator()).walls,
+        new MazeGrid(2, 2, new Random(31)).walls);
+    t.checkExpect(new MazeGrid(2, 3).edgeTo(3, MazeGrid.LEFT),
+        MazeGrid.edgeId(1, MazeGrid.RIGHT));
+    t.checkExpect(new MazeGrid(2, 3).edgeTo(3, MazeGrid.TOP),
+        MazeGrid.edgeId(2, MazeGrid.BOTTOM));
+  }
 
-      if (new Posn(0, 1).equals(this.ms2.distanceFromPosn(cur.first, cur.second))) {
-        WorldImage line = new RectangleImage(nodeS1, 1, "solid", Color.black);
-        sc2.placeImageXY(line, nodeS1 * cur.second.x + nodeS1 / 2, nodeS1 * cur.second.y);
+  void testEllerStream(Tester t) {
+    // streaming into a grid is the same as the eller generator
+    MazeGrid g = new MazeGrid(30, 20);
+    new EllerStream(20, new Random(4)).generate(30, new GridRowSink(g));
+    t.checkExpect(g.walls, new MazeGrid(30, 20, new Random(4), new EllerGenerator()).walls);
+    t.checkExpect(this.isPerfect(g), true);
+
+    // the packed rows hold the same walls as the grid
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new EllerStream(20, new Random(4)).generate(30, new PackedRowSink(out, 20));
+    byte[] bytes = out.toByteArray();
+    t.checkExpect(bytes.length, 30 * PackedRowSink.packedLength(20));
+
+    byte[] packed = new byte[PackedRowSink.packedLength(20)];
+    byte[] walls = new byte[20];
+    boolean same = true;
+    for (int y = 0; y < 30; y++) {
+      System.arraycopy(bytes, y * packed.length, packed, 0, packed.length);
+      PackedRowSink.unpack(packed, walls);
+      for (int x = 0; x < 20; x++) {
+        int cell = g.cellAt(x, y);
+        boolean right = x < 19 && g.hasWall(cell, MazeGrid.RIGHT);
+        boolean bottom = y < 29 && g.hasWall(cell, MazeGrid.BOTTOM);
+        same = same && right == ((walls[x] & MazeGrid.RIGHT) != 0)
+            && bottom == ((walls[x] & MazeGrid.BOTTOM) != 0);
       }
-      else if (new Posn(1, 0).equals(this.ms2.distanceFromPosn(cur.first, cur.second))) {
-        WorldImage line = new RectangleImage(1, nodeS1, "solid", Color.black);
-        sc2.placeImageXY(line, nodeS1 * cur.second.x, nodeS1 * cur.second.y + nodeS1 / 2);
+    }
+    t.checkExpect(same, true);
+
+    byte[] row = { 3, 0, 1, 2, 3 };
+    byte[] packedRow = new byte[2];
+    PackedRowSink.pack(row, packedRow);
+    t.checkExpect(packedRow, new byte[] { (byte) 0x93, 3 });
+    byte[] unpackedRow = new byte[5];
+    PackedRowSink.unpack(packedRow, unpackedRow);
+    t.checkExpect(unpackedRow, row);
+
+    t.checkConstructorException(new IllegalArgumentException("a maze needs at least one cell"),
+        "EllerStream", 0, new Random());
+  }
+
+  void testEllerStreamTall(Tester t) {
+    // a maze far taller than it is wide only needs memory for one row at a time
+    int width = 40;
+    int height = 100000;
+    EllerStream stream = new EllerStream(width, new Random(12));
+    long passages = 0;
+    for (int y = 0; y < height; y++) {
+      byte[] walls = stream.nextRow(y == height - 1);
+      for (int x = 0; x < width; x++) {
+        if (x < width - 1 && (walls[x] & MazeGrid.RIGHT) == 0) {
+          passages++;
+        }
+        if (y < height - 1 && (walls[x] & MazeGrid.BOTTOM) == 0) {
+          passages++;
+        }
       }
     }
+    t.checkExpect(passages, (long) width * height - 1);
+  }
+
+  void testParallelGenerator(Tester t) {
+    ForkJoinPool one = new ForkJoinPool(1);
+    ForkJoinPool four = new ForkJoinPool(4);
+
+    MazeGenerator[] generators = { new ParallelGenerator(),
+        new ParallelGenerator(new KruskalGenerator(), 16, one),
+        new ParallelGenerator(new BacktrackerGenerator(), 7, four),
+        new ParallelGenerator(new WilsonGenerator(), 1, four) };
+    for (MazeGenerator gen : generators) {
+      t.checkExpect(this.isPerfect(new MazeGrid(1, 1, new Random(1), gen)), true);
+      t.checkExpect(this.isPerfect(new MazeGrid(3, 40, new Random(2), gen)), true);
+      t.checkExpect(this.isPerfect(new MazeGrid(100, 75, new Random(3), gen)), true);
+    }
 
-    for (int i = 0; i < this.ms2.movements.size(); i++) {
-      WorldImage node = new RectangleImage(nodeS1 - 1, nodeS1 - 1, "solid", Color.cyan);
-      sc2.placeImageXY(node, nodeS1 * this.ms2.movements.get(i).x + nodeS1 / 2,
-          nodeS1 * this.ms2.movements.get(i).y + nodeS1 / 2);
+    // the maze only depends on the seed, not on how many threads carved it
+    t.checkExpect(
+        new MazeGrid(300, 200, new Random(4),
+            new ParallelGenerator(new PrimGenerator(), 32, one)).walls,
+        new MazeGrid(300, 200, new Random(4),
+            new ParallelGenerator(new PrimGenerator(), 32, four)).walls);
+
+    // a single tile is the same maze as the tile generator on its own
+    long seed = new Random(5).nextLong();
+    t.checkExpect(
+        new MazeGrid(20, 30, new Random(5), new ParallelGenerator(new EllerGenerator(), 64, four))
+            .walls,
+        new MazeGrid(20, 30, SeedHash.stream(seed, 0), new EllerGenerator()).walls);
+
+    t.checkConstructorException(new IllegalArgumentException("a tile needs at least one cell"),
+        "ParallelGenerator", new KruskalGenerator(), 0, one);
+
+    one.shutdown();
+    four.shutdown();
+  }
 
+  void testGridSearch(Tester t) {
+    int[] strategies = { GridSearch.BREADTH_FIRST, GridSearch.DEPTH_FIRST, GridSearch.A_STAR,
+        GridSearch.GREEDY, GridSearch.BIDIRECTIONAL };
+
+    // a perfect maze has one path, so every strategy finds the same one
+    for (int seed = 0; seed < 5; seed++) {
+      Maze temp = new Maze(new MazeGrid(30, 40, new Random(seed)));
+      ArrayList<Node> expected = new ArrayList<Node>(temp.getSolution());
+      for (int strategy : strategies) {
+        t.checkExpect(temp.getSolution(strategy), expected);
+        t.checkExpect(temp.pathLength, expected.size());
+      }
     }
 
-    for (int i = 0; i < this.ms2.solution.size(); i++) {
-      WorldImage node = new RectangleImage(nodeS1 - 1, nodeS1 - 1, "solid", Color.blue);
-      sc2.placeImageXY(node, nodeS1 * this.ms2.solution.get(i).x + nodeS1 / 2,
-          nodeS1 * this.ms2.solution.get(i).y + nodeS1 / 2);
+    // a corridor along the top row and down the right column
+    MazeGrid g = new MazeGrid(3, 3);
+    g.carve(g.cellAt(0, 0), MazeGrid.RIGHT);
+    g.carve(g.cellAt(1, 0), MazeGrid.RIGHT);
+    g.carve(g.cellAt(2, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(2, 1), MazeGrid.BOTTOM);
+    // and a dead end that leads down the left column
+    g.carve(g.cellAt(0, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(0, 1), MazeGrid.BOTTOM);
+    GridSearch search = new GridSearch(g);
+    int[] path = new int[] { 8, 7, 6, 3, 0 };
+    t.checkExpect(search.search(0, 8, GridSearch.BREADTH_FIRST), path);
+    t.checkExpect(search.expanded, 7);
+    t.checkExpect(search.search(0, 8, GridSearch.DEPTH_FIRST), path);
+    t.checkExpect(search.expanded, 7);
+    t.checkExpect(search.search(0, 8, GridSearch.A_STAR), path);
+    t.checkExpect(search.expanded, 7);
+    // the dead end is as close to the goal as the corridor, and lower ids win ties
+    t.checkExpect(search.search(0, 8, GridSearch.GREEDY), path);
+    t.checkExpect(search.expanded, 7);
+    t.checkExpect(search.search(4, 4, GridSearch.A_STAR), new int[] { 4 });
+    t.checkExpect(search.expanded, 1);
+    t.checkExpect(search.search(8, 2, GridSearch.A_STAR), new int[] { 2, 1, 0, 3, 6, 7, 8 });
+
+    // with loops A* still finds a shortest path
+    MazeGrid open = new MazeGrid(20, 20);
+    for (int cell = 0; cell < open.cells(); cell++) {
+      if (open.neighbor(cell, MazeGrid.RIGHT) >= 0) {
+        open.carve(cell, MazeGrid.RIGHT);
+      }
+      if (open.neighbor(cell, MazeGrid.BOTTOM) >= 0) {
+        open.carve(cell, MazeGrid.BOTTOM);
+      }
+    }
+    GridSearch openSearch = new GridSearch(open);
+    t.checkExpect(openSearch.search(0, 399, GridSearch.A_STAR).length, 39);
+    t.checkExpect(openSearch.search(0, 399, GridSearch.BREADTH_FIRST).length, 39);
+    t.checkExpect(openSearch.expanded, 400);
+    t.checkExpect(openSearch.search(0, 399, GridSearch.GREEDY).length, 39);
+    t.checkExpect(openSearch.expanded, 39);
+
+    t.checkException(new IllegalStateException("the search never reached cell 3"),
+        new GridSearch(new MazeGrid(2, 2)), "search", 0, 3, GridSearch.A_STAR);
+    t.checkException(new IllegalArgumentException("unknown search strategy 9"),
+        new GridSearch(new MazeGrid(2, 2)), "search", 0, 3, 9);
+  }
 
+  void testBidirectional(Tester t) {
+    // the corridor and dead end of testGridSearch
+    MazeGrid g = new MazeGrid(3, 3);
+    g.carve(g.cellAt(0, 0), MazeGrid.RIGHT);
+    g.carve(g.cellAt(1, 0), MazeGrid.RIGHT);
+    g.carve(g.cellAt(2, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(2, 1), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(0, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(0, 1), MazeGrid.BOTTOM);
+    GridSearch search = new GridSearch(g);
+
+    // the start's half expands 0, then the smaller goal's half expands 8, 7
+    // and 6, which reaches 3
+    t.checkExpect(search.search(0, 8, GridSearch.BIDIRECTIONAL), new int[] { 8, 7, 6, 3, 0 });
+    t.checkExpect(search.expanded, 4);
+    t.checkExpect(search.search(8, 0, GridSearch.BIDIRECTIONAL), new int[] { 0, 3, 6, 7, 8 });
+    t.checkExpect(search.search(2, 8, GridSearch.BIDIRECTIONAL),
+        new int[] { 8, 7, 6, 3, 0, 1, 2 });
+    t.checkExpect(search.search(0, 3, GridSearch.BIDIRECTIONAL), new int[] { 3, 0 });
+    t.checkExpect(search.search(5, 5, GridSearch.BIDIRECTIONAL), new int[] { 5 });
+    t.checkExpect(search.expanded, 1);
+
+    // the halves meet anywhere on the one path of a perfect maze
+    GridSearch big = new GridSearch(new MazeGrid(200, 300, new Random(13)));
+    for (int i = 0; i < 20; i++) {
+      int start = i * 2999;
+      int goal = 59999 - i * 1733;
+      int[] expected = big.search(start, goal, GridSearch.BREADTH_FIRST);
+      t.checkExpect(big.search(start, goal, GridSearch.BIDIRECTIONAL), expected);
     }
-    WorldImage playerN2 = new RectangleImage(nodeS1 - 1, nodeS1 - 1, "solid", Color.black);
-    sc2.placeImageXY(playerN2, nodeS1 * this.ms2.player.x + nodeS1 / 2,
-        nodeS1 * this.ms2.player.y + nodeS1 / 2);
 
-    t.checkExpect(this.ms2.makeScene(), sc2);
+    // with loops the halves can meet in many cells, and the path through the
+    // closest of them is as short as a breadth-first one
+    MazeGrid braided = new MazeGrid(60, 80, new Random(14));
+    Random rand = new Random(15);
+    for (int i = 0; i < 1500; i++) {
+      int cell = rand.nextInt(braided.cells());
+      int dir = 1 << rand.nextInt(4);
+      if (braided.neighbor(cell, dir) >= 0) {
+        braided.carve(cell, dir);
+      }
+    }
+    GridSearch loops = new GridSearch(braided);
+    boolean shortest = true;
+    for (int i = 0; i < 200; i++) {
+      int start = rand.nextInt(braided.cells());
+      int goal = rand.nextInt(braided.cells());
+      int length = loops.search(start, goal, GridSearch.BREADTH_FIRST).length;
+      int[] path = loops.search(start, goal, GridSearch.BIDIRECTIONAL);
+      shortest = shortest && path.length == length && path[0] == goal
+          && path[path.length - 1] == start;
+      for (int k = 1; k < path.length; k++) {
+        int dir = MazeGrid.RIGHT;
+        while (dir <= MazeGrid.TOP && braided.neighbor(path[k], dir) != path[k - 1]) {
+          dir <<= 1;
+        }
+        shortest = shortest && dir <= MazeGrid.TOP && braided.canMove(path[k], dir);
+      }
+    }
+    t.checkExpect(shortest, true);
+
+    // the cell 4 is walled in, so neither half can reach the other
+    t.checkException(new IllegalStateException("the search never reached cell 4"), search,
+        "search", 0, 4, GridSearch.BIDIRECTIONAL);
+  }
+
+  void testJunctionGraph(Tester t) {
+    // the corridor and dead end of testGridSearch
+    MazeGrid g = new MazeGrid(3, 3);
+    g.carve(g.cellAt(0, 0), MazeGrid.RIGHT);
+    g.carve(g.cellAt(1, 0), MazeGrid.RIGHT);
+    g.carve(g.cellAt(2, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(2, 1), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(0, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(0, 1), MazeGrid.BOTTOM);
+
+    JunctionGraph graph = new JunctionGraph(g, 0, 8);
+    t.checkExpect(graph.filled.count(), 4);
+    t.checkExpect(graph.filled.contains(1), true);
+    t.checkExpect(graph.filled.contains(2), true);
+    t.checkExpect(graph.remaining, 5);
+    t.checkExpect(graph.cells, new int[] { 0, 8 });
+    t.checkExpect(graph.corridors(), 1);
+    t.checkExpect(graph.target[JunctionGraph.slot(MazeGrid.RIGHT)], 1);
+    t.checkExpect(graph.weight[JunctionGraph.slot(MazeGrid.RIGHT)], 4);
+    t.checkExpect(graph.target[4 + JunctionGraph.slot(MazeGrid.TOP)], 0);
+    t.checkExpect(graph.solve(), new int[] { 8, 7, 6, 3, 0 });
+    t.checkExpect(graph.expanded, 2);
+
+    // nothing is filled when the path leads into the dead end
+    JunctionGraph toDeadEnd = new JunctionGraph(g, 2, 8);
+    t.checkExpect(toDeadEnd.remaining, 7);
+    t.checkExpect(toDeadEnd.cells, new int[] { 2, 8 });
+    t.checkExpect(toDeadEnd.weight[JunctionGraph.slot(MazeGrid.TOP)], 6);
+    t.checkExpect(toDeadEnd.solve(), new int[] { 8, 7, 6, 3, 0, 1, 2 });
+
+    // a perfect maze fills down to its solution, a single corridor
+    for (int seed = 0; seed < 5; seed++) {
+      MazeGrid perfect = new MazeGrid(40, 50, new Random(seed));
+      int[] expected = new GridSearch(perfect).search(0, 1999, GridSearch.BREADTH_FIRST);
+      JunctionGraph shrunk = new JunctionGraph(perfect, 0, 1999);
+      t.checkExpect(shrunk.remaining, expected.length);
+      t.checkExpect(shrunk.junctions(), 2);
+      t.checkExpect(shrunk.solve(), expected);
+      t.checkExpect(new GridSearch(perfect).search(0, 1999, GridSearch.JUNCTIONS), expected);
+    }
+
+    // with loops the junctions are kept and the path is still a shortest one
+    MazeGrid braided = new MazeGrid(40, 50, new Random(7));
+    Random rand = new Random(8);
+    for (int i = 0; i < 300; i++) {
+      int cell = rand.nextInt(braided.cells());
+      if (braided.neighbor(cell, MazeGrid.RIGHT) >= 0) {
+        braided.carve(cell, MazeGrid.RIGHT);
+      }
+    }
+    GridSearch search = new GridSearch(braided);
+    for (int i = 0; i < 10; i++) {
+      int start = i * 157;
+      int goal = 1999 - i * 91;
+      int[] path = new JunctionGraph(braided, start, goal).solve();
+      t.checkExpect(path.length, search.search(start, goal, GridSearch.BREADTH_FIRST).length);
+      t.checkExpect(search.search(start, goal, GridSearch.JUNCTIONS).length, path.length);
+      if (i % 2 == 1) {
+        path = search.junctions.solve(goal, start);
+        int swap = start;
+        start = goal;
+        goal = swap;
+      }
+      t.checkExpect(path[0], goal);
+      t.checkExpect(path[path.length - 1], start);
+      boolean connected = true;
+      for (int k = 1; k < path.length; k++) {
+        boolean step = false;
+        for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+          step = step
+              || braided.canMove(path[k], dir) && braided.neighbor(path[k], dir) == path[k - 1];
+        }
+        connected = connected && step;
+      }
+      t.checkExpect(connected, true);
+    }
+
+    t.checkException(new IllegalStateException("the search never reached cell 3"),
+        new JunctionGraph(new MazeGrid(2, 2), 0, 3), "solve");
+    t.checkException(new IllegalArgumentException("cell 2 was filled as a dead end"), graph,
+        "solve", 2, 8);
+
+    // a shared graph fills nothing and attaches the start and the goal of every
+    // search to the junctions at the ends of their corridors
+    JunctionGraph shared = new JunctionGraph(g);
+    t.checkExpect(shared.filled.count(), 0);
+    t.checkExpect(shared.cells, new int[] { 2, 4, 5, 8 });
+    t.checkExpect(shared.corridors(), 1);
+    t.checkExpect(shared.weight[JunctionGraph.slot(MazeGrid.TOP)], 6);
+    t.checkExpect(shared.solve(0, 8), new int[] { 8, 7, 6, 3, 0 });
+    t.checkExpect(shared.solve(8, 0), new int[] { 0, 3, 6, 7, 8 });
+    t.checkExpect(shared.solve(2, 8), new int[] { 8, 7, 6, 3, 0, 1, 2 });
+    t.checkExpect(shared.solve(3, 1), new int[] { 1, 0, 3 });
+    t.checkExpect(shared.solve(7, 0), new int[] { 0, 3, 6, 7 });
+    t.checkExpect(shared.solve(6, 6), new int[] { 6 });
+    t.checkException(new IllegalStateException("the search never reached cell 4"), shared,
+        "solve", 0, 4);
+
+    // a search reuses the graph the first search over junctions made
+    JunctionGraph built = search.junctions;
+    search.search(0, 1999, GridSearch.JUNCTIONS);
+    t.checkExpect(search.junctions == built, true);
+    t.checkExpect(new GridSearch(braided).junctions, null);
+  }
+
+  void testTreeIndex(Tester t) {
+    // the corridor and dead end of testGridSearch, hanging from 0
+    MazeGrid g = new MazeGrid(3, 3);
+    g.carve(g.cellAt(0, 0), MazeGrid.RIGHT);
+    g.carve(g.cellAt(1, 0), MazeGrid.RIGHT);
+    g.carve(g.cellAt(2, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(2, 1), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(0, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(0, 1), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(1, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(1, 1), MazeGrid.BOTTOM);
+
+    TreeIndex tree = new TreeIndex(g, 0);
+    t.checkExpect(tree.depth, new int[] { 0, 1, 2, 1, 2, 3, 2, 3, 4 });
+    t.checkExpect(tree.up.length, 3);
+    t.checkExpect(tree.up[0], new int[] { 0, 0, 1, 0, 3, 4, 3, 6, 7 });
+    t.checkExpect(tree.ancestor(8, 3), 3);
+    t.checkExpect(tree.ancestor(8, 4), 0);
+    t.checkExpect(tree.ancestor(8, 100), 0);
+    t.checkExpect(tree.lowestCommonAncestor(8, 5), 3);
+    t.checkExpect(tree.lowestCommonAncestor(2, 5), 0);
+    t.checkExpect(tree.lowestCommonAncestor(7, 6), 6);
+    t.checkExpect(tree.distance(2, 8), 6);
+    t.checkExpect(tree.distance(4, 4), 0);
+    t.checkExpect(tree.path(5, 8), new int[] { 8, 7, 6, 3, 4, 5 });
+    t.checkExpect(tree.path(8, 3), new int[] { 3, 6, 7, 8 });
+    t.checkExpect(tree.path(3, 8), new int[] { 8, 7, 6, 3 });
+    t.checkExpect(tree.path(1, 1), new int[] { 1 });
+
+    // the paths are the ones a search finds, from any root
+    MazeGrid perfect = new MazeGrid(60, 70, new Random(3), new BacktrackerGenerator());
+    TreeIndex index = new TreeIndex(perfect, 1234);
+    GridSearch search = new GridSearch(perfect);
+    Random rand = new Random(4);
+    for (int i = 0; i < 50; i++) {
+      int start = rand.nextInt(perfect.cells());
+      int goal = rand.nextInt(perfect.cells());
+      int[] expected = search.search(start, goal, GridSearch.BREADTH_FIRST);
+      t.checkExpect(index.path(start, goal), expected);
+      t.checkExpect(index.distance(start, goal), expected.length - 1);
+    }
+
+    t.checkConstructorException(new IllegalArgumentException("the maze is not a spanning tree"),
+        "TreeIndex", new MazeGrid(2, 2), 0);
+    MazeGrid loop = new MazeGrid(2, 2, new Random(1));
+    for (int cell = 0; cell < 4; cell++) {
+      if (loop.neighbor(cell, MazeGrid.RIGHT) >= 0) {
+        loop.carve(cell, MazeGrid.RIGHT);
+      }
+      if (loop.neighbor(cell, MazeGrid.BOTTOM) >= 0) {
+        loop.carve(cell, MazeGrid.BOTTOM);
+      }
+    }
+    t.checkConstructorException(new IllegalArgumentException("the maze is not a spanning tree"),
+        "TreeIndex", loop, 0);
+  }
+
+  void testPathBetween(Tester t) {
+    Maze temp = new Maze(new MazeGrid(20, 30, new Random(6)));
+    Node last = temp.nodeAt(temp.cells() - 1);
+    t.checkExpect(temp.pathBetween(temp.nodeAt(0), last), temp.getSolution());
+    TreeIndex built = temp.tree;
+    t.checkExpect(temp.pathBetween(last, last), new ArrayList<Node>(Arrays.asList(last)));
+    t.checkExpect(temp.tree == built, true);
+
+    // a new maze gets a new index
+    temp.generator = new KruskalGenerator();
+    temp.onKeyEvent("r");
+    t.checkExpect(temp.pathBetween(temp.nodeAt(0), temp.nodeAt(599)), temp.getSolution());
+    t.checkExpect(temp.tree == built, false);
+  }
+
+  void testPathService(Tester t) {
+    ForkJoinPool four = new ForkJoinPool(4);
+    MazeGrid perfect = new MazeGrid(50, 40, new Random(21));
+    PathService service = new PathService(perfect, four);
+    t.checkExpect(service.tree != null, true);
+
+    Random rand = new Random(22);
+    int[] queries = new int[2000];
+    for (int i = 0; i < queries.length; i++) {
+      queries[i] = rand.nextInt(perfect.cells());
+    }
+
+    int[] lengths = service.lengths(queries);
+    int[][] paths = service.paths(queries);
+    t.checkExpect(lengths.length, 1000);
+    // 1000 queries are split into ranges of at most SEQUENTIAL_QUERIES, whose
+    // counts are added up once the halves have joined
+    t.checkExpect(service.answered, 1000);
+    t.checkExpect(service.throughput() > 0, true);
+
+    GridSearch search = new GridSearch(perfect);
+    boolean same = true;
+    for (int i = 0; i < 1000; i++) {
+      int[] expected = search.search(queries[2 * i], queries[2 * i + 1], GridSearch.BREADTH_FIRST);
+      same = same && Arrays.equals(paths[i], expected) && lengths[i] == expected.length - 1;
+    }
+    t.checkExpect(same, true);
+
+    // a maze with loops is searched, and gets the same lengths
+    MazeGrid braided = new MazeGrid(50, 40, new Random(21));
+    for (int cell = 0; cell < braided.cells(); cell += 7) {
+      if (braided.neighbor(cell, MazeGrid.BOTTOM) >= 0) {
+        braided.carve(cell, MazeGrid.BOTTOM);
+      }
+    }
+    PathService searched = new PathService(braided, four);
+    t.checkExpect(searched.tree, null);
+    int[] few = Arrays.copyOf(queries, 600);
+    int[] braidedLengths = searched.lengths(few);
+    int[][] braidedPaths = searched.paths(few);
+    boolean shorter = true;
+    for (int i = 0; i < 300; i++) {
+      shorter = shorter && braidedLengths[i] <= lengths[i]
+          && braidedPaths[i].length == braidedLengths[i] + 1;
+    }
+    t.checkExpect(shorter, true);
+    // every thread keeps one search for all the ranges it answers
+    t.checkExpect(searched.search() == searched.search(), true);
+    t.checkExpect(searched.search().grid, braided);
+
+    t.checkExpect(service.lengths(new int[0]), new int[0]);
+    t.checkException(new IllegalArgumentException("every query needs a start and a goal"),
+        service, "lengths", new int[] { 1, 2, 3 });
+    t.checkException(new IllegalArgumentException("cell 2000 is not in the maze"), service,
+        "paths", new int[] { 1, 2000 });
+    four.shutdown();
+  }
+
+  void testDistanceField(Tester t) {
+    ForkJoinPool four = new ForkJoinPool(4);
+
+    // on a grid without walls every distance is a manhattan distance
+    MazeGrid open = new MazeGrid(60, 80);
+    for (int cell = 0; cell < open.cells(); cell++) {
+      if (open.neighbor(cell, MazeGrid.RIGHT) >= 0) {
+        open.carve(cell, MazeGrid.RIGHT);
+      }
+      if (open.neighbor(cell, MazeGrid.BOTTOM) >= 0) {
+        open.carve(cell, MazeGrid.BOTTOM);
+      }
+    }
+    // chunks of 3 cells make every level past the first few parallel
+    DistanceField field = new DistanceField(open, four, 3);
+    int source = open.cellAt(30, 20);
+    int[] distance = field.compute(source);
+    boolean manhattan = true;
+    for (int cell = 0; cell < open.cells(); cell++) {
+      manhattan = manhattan && distance[cell] == Math.abs(open.xOf(cell) - 30)
+          + Math.abs(open.yOf(cell) - 20);
+    }
+    t.checkExpect(manhattan, true);
+    t.checkExpect(field.depth, 49 + 39);
+    t.checkExpect(field.farthest, open.cellAt(79, 59));
+
+    // in a perfect maze the distances are the ones of the tree index
+    MazeGrid perfect = new MazeGrid(70, 90, new Random(17));
+    TreeIndex tree = new TreeIndex(perfect, 0);
+    int[] fromCorner = new DistanceField(perfect, four, 2).compute(0);
+    int[] sequential = new DistanceField(perfect, four, 100000).compute(0);
+    t.checkExpect(fromCorner, tree.depth);
+    t.checkExpect(sequential, tree.depth);
+
+    // cells that cannot be reached stay at -1
+    MazeGrid closed = new MazeGrid(2, 2);
+    closed.carve(0, MazeGrid.RIGHT);
+    t.checkExpect(new DistanceField(closed).compute(0), new int[] { 0, -1, 1, -1 });
+
+    Maze temp = new Maze(new MazeGrid(20, 30, new Random(6)));
+    int[] fromLast = temp.distancesFrom(temp.nodeAt(599));
+    t.checkExpect(fromLast[0], temp.getSolution().size() - 1);
+    t.checkExpect(fromLast[599], 0);
+
+    t.checkConstructorException(new IllegalArgumentException("a chunk needs at least one cell"),
+        "DistanceField", open, four, 0);
+    four.shutdown();
+  }
+
+  void testMazeMetrics(Tester t) {
+    // the tree of testTreeIndex: 0 - 3 - 6 - 7 - 8, 0 - 1 - 2 and 3 - 4 - 5
+    MazeGrid g = new MazeGrid(3, 3);
+    g.carve(g.cellAt(0, 0), MazeGrid.RIGHT);
+    g.carve(g.cellAt(1, 0), MazeGrid.RIGHT);
+    g.carve(g.cellAt(2, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(2, 1), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(0, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(0, 1), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(1, 0), MazeGrid.BOTTOM);
+    g.carve(g.cellAt(1, 1), MazeGrid.BOTTOM);
+
+    MazeMetrics metrics = new MazeMetrics(g);
+    t.checkExpect(metrics.solutionLength, 4);
+    t.checkExpect(metrics.deadEnds, 3);
+    t.checkExpect(metrics.junctions, 1);
+    t.checkExpect(metrics.corridorCells, 5);
+    t.checkExpect(metrics.longestCorridor, 2);
+    t.checkExpect(metrics.riverFactor, 5.0 / 9);
+    t.checkExpect(metrics.diameter, 6);
+
+    t.checkExpect(metrics.degree(3), 3);
+    t.checkExpect(metrics.walk(3, MazeGrid.RIGHT), 2);
+    t.checkExpect(metrics.walk(2, MazeGrid.TOP), 2);
+
+    // the metrics agree with searching and indexing the maze
+    for (int seed = 0; seed < 5; seed++) {
+      MazeGrid perfect = new MazeGrid(40, 60, new Random(seed), new BacktrackerGenerator());
+      MazeMetrics measured = new MazeMetrics(perfect);
+      int[] fromEnd = new DistanceField(perfect).compute(2399);
+      t.checkExpect(measured.solutionLength, fromEnd[0]);
+      t.checkExpect(measured.deadEnds + measured.corridorCells + measured.junctions, 2400);
+      t.checkExpect(measured.junctions < measured.deadEnds, true);
+
+      // the diameter is the longest path from any cell
+      DistanceField field = new DistanceField(perfect);
+      int longest = 0;
+      for (int cell = 0; cell < perfect.cells(); cell += 37) {
+        field.compute(cell);
+        longest = Math.max(longest, field.depth);
+      }
+      t.checkExpect(measured.diameter >= longest, true);
+      field.compute(measured.farthest);
+      t.checkExpect(field.depth, measured.diameter);
+    }
+
+    // the queue grows on wide levels, and walls keep the last cell out of reach
+    MazeGrid open = new MazeGrid(1200, 1200);
+    int last = open.cells() - 1;
+    for (int cell = 0; cell < last; cell++) {
+      int right = open.neighbor(cell, MazeGrid.RIGHT);
+      int below = open.neighbor(cell, MazeGrid.BOTTOM);
+      if (right >= 0 && right != last) {
+        open.carve(cell, MazeGrid.RIGHT);
+      }
+      if (below >= 0 && below != last) {
+        open.carve(cell, MazeGrid.BOTTOM);
+      }
+    }
+    MazeMetrics wide = new MazeMetrics(open);
+    t.checkExpect(wide.solutionLength, -1);
+    t.checkExpect(wide.queue.length >= 2048, true);
+    // with loops the two sweeps can fall one short of the real diameter
+    t.checkNumRange(wide.diameter, 2397, 2399);
+    t.checkExpect(new MazeMetrics(new MazeGrid(1, 1)).solutionLength, 0);
+
+    Maze temp = new Maze(new MazeGrid(20, 30, new Random(6)));
+    t.checkExpect(temp.metrics().solutionLength, temp.getSolution().size() - 1);
+  }
+
+  void testSearchStepper(Tester t) {
+    Maze whole = new Maze(new MazeGrid(30, 40, new Random(12)));
+    Maze ticked = new Maze(new MazeGrid(30, 40, new Random(12)));
+    ArrayList<Node> expected = new Maze(new MazeGrid(30, 40, new Random(12))).getSolution();
+
+    // paused until "b" is pressed
+    t.checkExpect(whole.stepper.isStopped(), true);
+    t.checkExpect(whole.stepper.step(10), 0);
+    whole.onKeyEvent("b");
+    ticked.onKeyEvent("b");
+
+    // one big step explores the same nodes as many single ticks
+    int taken = whole.stepper.step(Integer.MAX_VALUE);
+    t.checkExpect(whole.solution, expected);
+    t.checkExpect(whole.stepper.isStopped(), true);
+    t.checkExpect((long) taken, whole.stepper.steps);
+    for (int i = 0; i < taken; i++) {
+      ticked.onTick();
+    }
+    t.checkExpect(ticked.movements, whole.movements);
+    t.checkExpect(ticked.solution, expected);
+
+    // a budget of 25 steps a tick, paused and resumed halfway
+    Maze budget = new Maze(new MazeGrid(30, 40, new Random(12)));
+    budget.setTickSteps(25);
+    budget.onKeyEvent("d");
+    budget.onTick();
+    t.checkExpect(budget.stepper.steps, 25L);
+    budget.onKeyEvent("d");
+    budget.onTick();
+    t.checkExpect(budget.stepper.steps, 25L);
+    budget.onKeyEvent("d");
+    while (!budget.stepper.isStopped()) {
+      budget.onTick();
+    }
+    t.checkExpect(budget.solution, expected);
+
+    // a time budget finishes a small maze in one tick
+    Maze timed = new Maze(new MazeGrid(30, 40, new Random(12)));
+    timed.setTickTime(1000000000L);
+    timed.onKeyEvent("b");
+    timed.onTick();
+    t.checkExpect(timed.solution, expected);
+    t.checkExpect(timed.stepper.stepFor(1000000000L), 0);
+
+    // reaching the end halfway through the animation solves inline, and leaves
+    // the same search state as solving from scratch
+    Maze halfway = new Maze(new MazeGrid(30, 40, new Random(12)));
+    Maze fresh = new Maze(new MazeGrid(30, 40, new Random(12)));
+    fresh.getSolution();
+    halfway.onKeyEvent("b");
+    halfway.stepper.step(300);
+    halfway.player = halfway.nodeAt(halfway.cells() - 1);
+    halfway.worldEnds();
+    t.checkExpect(halfway.solution, expected);
+    t.checkExpect(halfway.stepper.isStopped(), true);
+    t.checkExpect(halfway.stepper.step(10), 0);
+    t.checkExpect(halfway.cameFrom, fresh.cameFrom);
+    t.checkExpect(halfway.path, fresh.path);
+    t.checkExpect(halfway.visited.count(), fresh.visited.count());
+
+    t.checkException(new IllegalArgumentException("a tick needs at least one step"), timed,
+        "setTickSteps", 0);
+    t.checkException(new IllegalArgumentException("a tick needs some time"), timed,
+        "setTickTime", 0L);
+  }
+
+  void testBackgroundSolver(Tester t) {
+    MazeGrid grid = new MazeGrid(200, 150, new Random(14));
+    int[] expected = new GridSearch(grid).search(0, 29999, GridSearch.BREADTH_FIRST);
+
+    BackgroundSolver solver = new BackgroundSolver(grid, 0, 29999, false);
+    t.checkExpect(solver.isSolved(), false);
+    t.checkExpect(solver.explored, 0);
+    solver.start();
+    try {
+      solver.await();
+    }
+    catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+    t.checkExpect(solver.isSolved(), true);
+    t.checkExpect(solver.path, expected);
+    t.checkExpect(solver.explored, solver.expanded);
+    t.checkExpect(solver.order[0], 0);
+    t.checkExpect(solver.order[solver.explored - 1], 29999);
+
+    // every explored cell is published once
+    VisitedSet once = new VisitedSet(grid.cells());
+    boolean unique = true;
+    for (int i = 0; i < solver.explored; i++) {
+      unique = unique && once.add(solver.order[i]);
+    }
+    t.checkExpect(unique, true);
+
+    // depth-first on the calling thread finds the same path
+    BackgroundSolver deep = new BackgroundSolver(grid, 29999, 0, true);
+    deep.run();
+    int[] reversed = new int[expected.length];
+    for (int i = 0; i < expected.length; i++) {
+      reversed[i] = expected[expected.length - 1 - i];
+    }
+    t.checkExpect(deep.path, reversed);
+
+    // a cancelled search stops without a path
+    BackgroundSolver cancelled = new BackgroundSolver(grid, 0, 29999, false);
+    cancelled.cancel();
+    cancelled.run();
+    t.checkExpect(cancelled.isSolved(), false);
+    t.checkExpect(cancelled.explored, 0);
+
+    // a large maze ends once the background search has found the solution
+    Maze big = new Maze(new MazeGrid(400, 300, new Random(15)));
+    big.player = big.nodeAt(big.cells() - 1);
+    big.worldEnds();
+    try {
+      big.background.await();
+    }
+    catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+    t.checkExpect(big.worldEnds().worldEnds, true);
+    ArrayList<Node> found = new ArrayList<Node>(big.solution);
+    t.checkExpect(found, big.getSolution());
+
+    big.onKeyEvent("r");
+    t.checkExpect(big.background, null);
+
+    // a maze that was never carved has no grid to search in the background
+    Maze uncarved = new Maze(400, 300, new Random(16));
+    uncarved.onKeyEvent("s");
+    t.checkExpect(uncarved.background, null);
+    t.checkExpect(uncarved.solution, new ArrayList<Node>());
+    uncarved.player = uncarved.nodeAt(uncarved.cells() - 1);
+    t.checkExpect(uncarved.worldEnds().worldEnds, true);
+    t.checkExpect(uncarved.background, null);
+
+    Maze single = new Maze(1, 1, new Random(17));
+    single.onKeyEvent("s");
+    t.checkExpect(single.solution, new ArrayList<Node>(Arrays.asList(single.nodeAt(0))));
+  }
+
+  void testSeedHash(Tester t) {
+    // the hash is the stream of SplittableRandom
+    SplittableRandom split = new SplittableRandom(42);
+    t.checkExpect(SeedHash.hash(42, 0), split.nextLong());
+    t.checkExpect(SeedHash.hash(42, 1), split.nextLong());
+    t.checkExpect(SeedHash.hash(42, 2), split.nextLong());
+
+    for (int edge = 0; edge < 10000; edge++) {
+      t.checkNumRange(SeedHash.weight(7, edge), 1, MazeGrid.MAX_WEIGHT + 1);
+    }
+    t.checkExpect(SeedHash.stream(3, 4).nextLong(), new Random(SeedHash.hash(3, 4)).nextLong());
+
+    // the edges are ordered by their hashed weights, then by id
+    MazeGrid g = new MazeGrid(30, 20);
+    int[] order = g.edgesBySeed(11);
+    int[] sorted = order.clone();
+    Arrays.sort(sorted);
+    t.checkExpect(sorted, g.edgeIds());
+    boolean ordered = true;
+    for (int i = 1; i < order.length; i++) {
+      int before = SeedHash.weight(11, order[i - 1]);
+      int after = SeedHash.weight(11, order[i]);
+      ordered = ordered && (before < after || before == after && order[i - 1] < order[i]);
+    }
+    t.checkExpect(ordered, true);
+
+    // a seed always gives the same perfect maze, whichever way it is reached
+    MazeGrid seeded = new MazeGrid(60, 45, 99);
+    t.checkExpect(this.isPerfect(seeded), true);
+    t.checkExpect(new MazeGrid(60, 45, 99).walls, seeded.walls);
+    t.checkExpect(Arrays.equals(new MazeGrid(60, 45, 98).walls, seeded.walls), false);
+    t.checkExpect(new MazeGrid(60, 45, new Random(5), new SeededKruskalGenerator()).walls,
+        new MazeGrid(60, 45, new Random(5).nextLong()).walls);
+
+    Maze temp = new Maze(60, 45, 99);
+    t.checkExpect(temp.grid.walls, seeded.walls);
+    t.checkExpect(temp.mst().size(), 60 * 45 - 1);
+    temp.onKeyEvent("r");
+    t.checkExpect(temp.grid.walls,
+        new MazeGrid(60, 45, new Random(99).nextLong()).walls);
+  }
+
+  void testMazeWithGenerator(Tester t) {
+    Maze temp = new Maze(15, 20, new Random(8), new PrimGenerator());
+    t.checkExpect(temp.nodes().size(), 300);
+    t.checkExpect(temp.mst().size(), 299);
+    t.checkExpect(temp.player, temp.nodes().get(0));
+    t.checkExpect(temp.getSolution().get(0), temp.nodes().get(299));
+
+    MazeGrid before = temp.grid;
+    temp.onKeyEvent("down");
+    temp.onKeyEvent("r");
+    t.checkExpect(temp.grid == before, false);
+    t.checkExpect(this.isPerfect(temp.grid), true);
+    t.checkExpect(temp.mst().size(), 299);
+    t.checkExpect(temp.movements, new ArrayList<Node>());
+    t.checkExpect(temp.player, temp.nodes().get(0));
+    t.checkExpect(temp.workList.size(), 1);
+  }
+
+  // returns the bytes of heap in use once the garbage is collected
+  long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+    }
+    return used;
+  }
+
+  void testLazyViewsMemory(Tester t) {
+    long empty = this.usedHeap();
+    Maze graph = new Maze(400, 400);
+    graph.onKeyEvent("down");
+    graph.onKeyEvent("right");
+    graph.makeScene();
+    graph.view = null;
+    long graphBytes = this.usedHeap() - empty;
+
+    empty = this.usedHeap();
+    Maze lazy = new Maze(new MazeGrid(400, 400, new Random(3)));
+    lazy.onKeyEvent("down");
+    lazy.onKeyEvent("right");
+    lazy.makeScene();
+    lazy.view = null;
+    long lazyBytes = this.usedHeap() - empty;
+
+    // a maze over a grid needs less than a tenth of the heap of the Node and
+    // Edge graph, as long as nobody asks for the views. Drawing them does not
+    // ask, but the camera it turns on is left out, as it is a window of the
+    // same size for both
+    t.checkExpect(lazy.nodes == null && graph.nodes.size() == lazy.cells(), true);
+    t.checkNumRange(graphBytes / Math.max(1, lazyBytes), 10L, Long.MAX_VALUE);
+  }
+
+  void testMazeFromGrid(Tester t) {
+    initData();
+
+    Maze temp = new Maze(new MazeGrid(2, 2, new Random(31)));
+    t.checkExpect(temp.height, 2);
+    t.checkExpect(temp.width, 2);
+    // the views are only built when they are asked for
+    t.checkExpect(temp.nodes, null);
+    t.checkExpect(temp.edges, null);
+    t.checkExpect(temp.mst, null);
+    t.checkExpect(temp.nodes(), this.aln1);
+    t.checkExpect(temp.mst().size(), 3);
+    t.checkExpect(temp.edges(), new ArrayList<Edge>(Arrays.asList(new Edge(this.n2, this.n4))));
+    t.checkExpect(temp.player, this.n1);
+
+    t.checkExpect(temp.getSolution(),
+        new ArrayList<Node>(Arrays.asList(this.n4, this.n3, this.n1)));
+    temp.onKeyEvent("right");
+    t.checkExpect(temp.player, this.n3);
+    temp.onKeyEvent("down");
+    t.checkExpect(temp.player, this.n4);
 
+    // playing and solving a maze from a grid never builds the views, and a
+    // node keeps its identity once nodes() builds them
+    Maze lazy = new Maze(new MazeGrid(20, 30, new Random(6)));
+    lazy.onKeyEvent("down");
+    ArrayList<Node> found = lazy.getSolution();
+    lazy.makeScene();
+    t.checkExpect(lazy.nodes, null);
+    t.checkExpect(lazy.edges, null);
+    t.checkExpect(found.get(0) == lazy.nodeAt(599), true);
+    t.checkExpect(lazy.nodes().get(599) == found.get(0), true);
+    t.checkExpect(lazy.nodes().get(0).right == lazy.nodes().get(20), true);
+    t.checkExpect(lazy.edges().size() + lazy.mst().size(), lazy.grid.edgeIds().length);
   }
 
   // You can adjust the size of the maze by changing the dimensions of m2 inside
@@ -1582,7 +3497,6 @@ class MazeExamples {
   // You can adjust the numbers however way you want it
   void testBigBang(Tester t) {
     Maze m2 = new Maze(10, 20);
-    int nodeS = 1275 / (m2.width + m2.height);
-    m2.bigBang(m2.width * nodeS, m2.height * nodeS, .000001);
+    m2.bigBang(m2.windowWidth(), m2.windowHeight(), .000001);
   }
 }
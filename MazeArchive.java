@@ -0,0 +1,410 @@
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * reads and writes mazes as archives of square tiles that are compressed one
+ * by one, so that a reader only decompresses the tiles it looks at. The file
+ * starts with a header of HEADER_BYTES bytes, all numbers big-endian:
+ *
+ * <pre>
+ * int  MAGIC
+ * int  VERSION
+ * int  width
+ * int  height
+ * long the seed the maze was generated from, or 0
+ * int  the id of the generator, one of the ids of MazeFile
+ * int  the number of cells on a side of a tile
+ * </pre>
+ *
+ * followed by every tile, compressed with Deflate, then the index: a long
+ * for where every tile starts and one more for where the last one ends, and
+ * last a long for where the index starts. Tiles are numbered column-major
+ * like the cells. A tile holds its rows from the top, packed the way
+ * PackedRowSink packs them, so the border of the maze is never stored.
+ *
+ * Since the index comes after the tiles, an archive is written in one pass
+ * with only one tile in memory at a time.
+ */
+class MazeArchive implements Closeable {
+  static final int MAGIC = 0x4D5A4152;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 32;
+  // the number of decompressed tiles kept, by tile number modulo this
+  static final int CACHE_TILES = 64;
+
+  int width;
+  int height;
+  long seed;
+  int generator;
+  int tileSize;
+  int tilesAcross;
+  int tilesDown;
+
+  FileChannel channel;
+  // where every tile starts, and where the last one ends
+  long[] offsets;
+
+  // the tiles decompressed last, and which tiles they are
+  byte[][] cached;
+  int[] cachedTiles;
+  Inflater inflater = new Inflater();
+
+  /**
+   * the number of tiles decompressed so far.
+   */
+  int tilesRead;
+
+  /**
+   * constructor that opens the archive of the given file and reads its index.
+   * The file stays open until the archive is closed.
+   *
+   * @param path the file to open
+   * @throws IOException if the file cannot be read or is not an archive this
+   *                     version can read
+   */
+  MazeArchive(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      if (this.channel.size() < HEADER_BYTES + 16) {
+        throw new IOException("not a maze archive");
+      }
+      ByteBuffer header = this.read(0, HEADER_BYTES);
+      if (header.getInt() != MAGIC) {
+        throw new IOException("not a maze archive");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("unsupported maze archive version " + version);
+      }
+      this.width = header.getInt();
+      this.height = header.getInt();
+      this.seed = header.getLong();
+      this.generator = header.getInt();
+      this.tileSize = header.getInt();
+      if (this.width < 1 || this.height < 1 || this.tileSize < 1) {
+        throw new IOException("a maze archive needs at least one cell");
+      }
+      this.tilesAcross = (this.width + this.tileSize - 1) / this.tileSize;
+      this.tilesDown = (this.height + this.tileSize - 1) / this.tileSize;
+
+      long indexStart = this.read(this.channel.size() - 8, 8).getLong();
+      long tiles = (long) this.tilesAcross * this.tilesDown;
+      if (indexStart < HEADER_BYTES
+          || indexStart + (tiles + 1) * 8 + 8 != this.channel.size()) {
+        throw new IOException("the maze archive is damaged");
+      }
+      ByteBuffer index = this.read(indexStart, (int) (tiles + 1) * 8);
+      this.offsets = new long[(int) tiles + 1];
+      for (int i = 0; i < this.offsets.length; i++) {
+        this.offsets[i] = index.getLong();
+      }
+    }
+    catch (IOException e) {
+      this.channel.close();
+      throw e;
+    }
+
+    this.cached = new byte[CACHE_TILES][];
+    this.cachedTiles = new int[CACHE_TILES];
+    Arrays.fill(this.cachedTiles, -1);
+  }
+
+  /**
+   * reads the given number of bytes of the file from the given position.
+   */
+  ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (this.channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("the maze archive is cut short");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  public void close() throws IOException {
+    this.channel.close();
+    this.inflater.end();
+  }
+
+  /**
+   * writes the given maze to the stream as an archive.
+   *
+   * @param grid      the maze to write
+   * @param seed      the seed it was generated from, or 0
+   * @param generator the id of the generator it came from, see MazeFile
+   * @param tileSize  the number of cells on a side of a tile
+   * @param out       the stream to write to, which is not closed
+   */
+  static void write(MazeGrid grid, long seed, int generator, int tileSize, OutputStream out)
+      throws IOException {
+    if (tileSize < 1) {
+      throw new IllegalArgumentException("a tile needs at least one cell");
+    }
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(grid.width);
+    data.writeInt(grid.height);
+    data.writeLong(seed);
+    data.writeInt(generator);
+    data.writeInt(tileSize);
+
+    int across = (grid.width + tileSize - 1) / tileSize;
+    int down = (grid.height + tileSize - 1) / tileSize;
+    long[] offsets = new long[across * down + 1];
+    offsets[0] = HEADER_BYTES;
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    byte[] buffer = new byte[4096];
+    try {
+      for (int tx = 0; tx < across; tx++) {
+        for (int ty = 0; ty < down; ty++) {
+          int tile = tx * down + ty;
+          deflater.reset();
+          deflater.setInput(packTile(grid, tx * tileSize, ty * tileSize, tileSize));
+          deflater.finish();
+          long written = 0;
+          while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            data.write(buffer, 0, length);
+            written += length;
+          }
+          offsets[tile + 1] = offsets[tile] + written;
+        }
+      }
+    }
+    finally {
+      deflater.end();
+    }
+
+    for (long offset : offsets) {
+      data.writeLong(offset);
+    }
+    data.writeLong(offsets[offsets.length - 1]);
+    data.flush();
+  }
+
+  /**
+   * packs the stored walls of the tile with the given top left cell.
+   */
+  static byte[] packTile(MazeGrid grid, int left, int top, int tileSize) {
+    int w = Math.min(tileSize, grid.width - left);
+    int h = Math.min(tileSize, grid.height - top);
+    int rowBytes = PackedRowSink.packedLength(w);
+    byte[] packed = new byte[rowBytes * h];
+    byte[] row = new byte[w];
+    byte[] packedRow = new byte[rowBytes];
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        int walls = grid.walls[grid.cellAt(left + x, top + y)]
+            & (MazeGrid.RIGHT | MazeGrid.BOTTOM);
+        // the border is never stored
+        if (left + x == grid.width - 1) {
+          walls &= ~MazeGrid.RIGHT;
+        }
+        if (top + y == grid.height - 1) {
+          walls &= ~MazeGrid.BOTTOM;
+        }
+        row[x] = (byte) walls;
+      }
+      PackedRowSink.pack(row, packedRow);
+      System.arraycopy(packedRow, 0, packed, y * rowBytes, rowBytes);
+    }
+    return packed;
+  }
+
+  /**
+   * returns the number of the tile holding the given cell.
+   */
+  int tileOf(int x, int y) {
+    return (x / this.tileSize) * this.tilesDown + y / this.tileSize;
+  }
+
+  /**
+   * returns the number of bytes the given tile takes in the file.
+   */
+  int compressedLength(int tile) {
+    return (int) (this.offsets[tile + 1] - this.offsets[tile]);
+  }
+
+  /**
+   * reads and decompresses the given tile, or finds it among the tiles read
+   * last.
+   *
+   * @param tile the number of the tile
+   * @return the packed rows of the tile
+   * @throws IOException if the tile cannot be read or decompressed
+   */
+  byte[] readTile(int tile) throws IOException {
+    int slot = tile % CACHE_TILES;
+    if (this.cachedTiles[slot] == tile) {
+      return this.cached[slot];
+    }
+
+    int tx = tile / this.tilesDown;
+    int ty = tile % this.tilesDown;
+    int w = Math.min(this.tileSize, this.width - tx * this.tileSize);
+    int h = Math.min(this.tileSize, this.height - ty * this.tileSize);
+    byte[] packed = new byte[PackedRowSink.packedLength(w) * h];
+    ByteBuffer compressed = this.read(this.offsets[tile], this.compressedLength(tile));
+    this.inflater.reset();
+    this.inflater.setInput(compressed.array());
+    try {
+      // inflates until the end of the stream, where its checksum is checked
+      int length = 0;
+      byte[] extra = new byte[1];
+      while (!this.inflater.finished()) {
+        int inflated;
+        if (length < packed.length) {
+          inflated = this.inflater.inflate(packed, length, packed.length - length);
+        }
+        else {
+          inflated = this.inflater.inflate(extra);
+          if (inflated > 0) {
+            throw new IOException("tile " + tile + " of the maze archive is damaged");
+          }
+        }
+        if (inflated == 0 && (this.inflater.needsInput() || this.inflater.needsDictionary())) {
+          throw new IOException("tile " + tile + " of the maze archive is damaged");
+        }
+        length += inflated;
+      }
+      if (length != packed.length) {
+        throw new IOException("tile " + tile + " of the maze archive is damaged");
+      }
+    }
+    catch (DataFormatException e) {
+      throw new IOException("tile " + tile + " of the maze archive is damaged", e);
+    }
+    this.tilesRead++;
+
+    this.cached[slot] = packed;
+    this.cachedTiles[slot] = tile;
+    return packed;
+  }
+
+  /**
+   * returns the RIGHT and BOTTOM walls stored for the given cell.
+   */
+  int stored(int x, int y) throws IOException {
+    int ox = x % this.tileSize;
+    int oy = y % this.tileSize;
+    return this.storedIn(this.readTile(this.tileOf(x, y)), x - ox, ox, oy);
+  }
+
+  /**
+   * returns the RIGHT and BOTTOM walls stored for a cell of a tile.
+   *
+   * @param packed the packed rows of the tile
+   * @param left   the first column of the tile
+   * @param ox     the column of the cell in the tile
+   * @param oy     the row of the cell in the tile
+   */
+  int storedIn(byte[] packed, int left, int ox, int oy) {
+    int w = Math.min(this.tileSize, this.width - left);
+    int at = oy * PackedRowSink.packedLength(w) + (ox >>> 2);
+    return (packed[at] >>> ((ox & 3) << 1)) & (MazeGrid.RIGHT | MazeGrid.BOTTOM);
+  }
+
+  /**
+   * returns the walls around the given cell, the same as MazeGrid.walls holds
+   * for it. Only the tiles of the cell and of its left and top neighbors are
+   * read.
+   *
+   * @param x the column of the cell
+   * @param y the row of the cell
+   * @return a mask of MazeGrid.RIGHT, BOTTOM, LEFT and TOP
+   * @throws IOException if a tile cannot be read
+   */
+  int walls(int x, int y) throws IOException {
+    if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+      throw new IllegalArgumentException("cell " + x + ", " + y + " is not in the maze");
+    }
+    int walls = this.stored(x, y);
+    if (x == this.width - 1) {
+      walls |= MazeGrid.RIGHT;
+    }
+    if (y == this.height - 1) {
+      walls |= MazeGrid.BOTTOM;
+    }
+    if (x == 0 || (this.stored(x - 1, y) & MazeGrid.RIGHT) != 0) {
+      walls |= MazeGrid.LEFT;
+    }
+    if (y == 0 || (this.stored(x, y - 1) & MazeGrid.BOTTOM) != 0) {
+      walls |= MazeGrid.TOP;
+    }
+    return walls;
+  }
+
+  /**
+   * copies the given rectangle of the maze into a grid of its own, reading
+   * only the tiles it covers. Walls that lead out of the rectangle are kept
+   * standing.
+   *
+   * @param left   the first column
+   * @param top    the first row
+   * @param width  the number of columns
+   * @param height the number of rows
+   * @return the rectangle as a grid
+   * @throws IOException if a tile cannot be read
+   */
+  MazeGrid region(int left, int top, int width, int height) throws IOException {
+    if (left < 0 || top < 0 || width < 1 || height < 1 || left + width > this.width
+        || top + height > this.height) {
+      throw new IllegalArgumentException("the region is not in the maze");
+    }
+    MazeGrid grid = new MazeGrid(height, width);
+    int size = this.tileSize;
+    // every tile is read once, even if there are more tiles than the cache holds
+    for (int tx = left / size; tx <= (left + width - 1) / size; tx++) {
+      for (int ty = top / size; ty <= (top + height - 1) / size; ty++) {
+        byte[] packed = this.readTile(tx * this.tilesDown + ty);
+        int fromX = Math.max(left, tx * size);
+        int toX = Math.min(left + width, (tx + 1) * size);
+        int fromY = Math.max(top, ty * size);
+        int toY = Math.min(top + height, (ty + 1) * size);
+        for (int x = fromX; x < toX; x++) {
+          for (int y = fromY; y < toY; y++) {
+            int walls = this.storedIn(packed, tx * size, x - tx * size, y - ty * size);
+            int cell = grid.cellAt(x - left, y - top);
+            if (x < left + width - 1 && (walls & MazeGrid.RIGHT) == 0) {
+              grid.carve(cell, MazeGrid.RIGHT);
+            }
+            if (y < top + height - 1 && (walls & MazeGrid.BOTTOM) == 0) {
+              grid.carve(cell, MazeGrid.BOTTOM);
+            }
+          }
+        }
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * copies the whole maze onto the heap as a grid.
+   *
+   * @throws IOException if a tile cannot be read
+   */
+  MazeGrid toGrid() throws IOException {
+    return this.region(0, 0, this.width, this.height);
+  }
+
+  /**
+   * returns the average number of bits the tiles take per cell.
+   */
+  double bitsPerCell() {
+    long bytes = this.offsets[this.offsets.length - 1] - this.offsets[0];
+    return bytes * 8.0 / ((long) this.width * this.height);
+  }
+}
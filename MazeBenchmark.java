@@ -0,0 +1,459 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * times the different stages of making and solving mazes. Run it with the
+ * height and width of the maze to time, for example: java MazeBenchmark 1000
+ * 1000
+ */
+class MazeBenchmark {
+  // how many times each stage is timed, the fastest run is reported so that
+  // the first runs can warm up the JIT
+  static final int RUNS = 10;
+  // quadratic stages are skipped on mazes with more cells than this
+  static final long QUADRATIC_CELLS = 250000;
+  // the width and height of the screen the camera draws in the frames stage
+  static final int SCREEN_PIXELS = 800;
+
+  public static void main(String[] args) {
+    int height = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int width = args.length > 1 ? Integer.parseInt(args[1]) : height;
+    new MazeBenchmark().run(height, width);
+  }
+
+  /**
+   * runs every benchmark on a maze of the given size.
+   */
+  void run(int height, int width) {
+    System.out.println("maze of " + height + "x" + width);
+    this.edgeOrdering(height, width);
+    this.wallDerivation(height, width);
+    this.generators(height, width);
+    this.solvers(height, width);
+    this.treeQueries(height, width);
+    this.batchQueries(height, width);
+    this.distanceField(height, width);
+    this.metrics(height, width);
+    this.frames(height, width);
+    this.headless(height, width);
+    this.files(height, width);
+    this.archives(height, width);
+  }
+
+  /**
+   * compares sorting the edges with EdgeComparator, the counting sort in
+   * Maze.sortEdges, the counting sorts over edge ids with drawn and hashed
+   * weights and the shuffle.
+   */
+  void edgeOrdering(int height, int width) {
+    long comparator = Long.MAX_VALUE;
+    long counting = Long.MAX_VALUE;
+    long ids = Long.MAX_VALUE;
+    long shuffle = Long.MAX_VALUE;
+    long hashed = Long.MAX_VALUE;
+
+    for (int run = 0; run < RUNS; run++) {
+      Maze maze = new Maze(height, width, new Random(run));
+      ArrayList<Edge> copy = new ArrayList<Edge>(maze.edges);
+
+      System.gc();
+      long start = System.nanoTime();
+      copy.sort(new EdgeComparator());
+      comparator = Math.min(comparator, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      maze.sortEdges();
+      counting = Math.min(counting, System.nanoTime() - start);
+
+      MazeGrid grid = new MazeGrid(height, width);
+      System.gc();
+      start = System.nanoTime();
+      grid.edgesByWeight(new Random(run));
+      ids = Math.min(ids, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      grid.shuffledEdges(new Random(run));
+      shuffle = Math.min(shuffle, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      grid.edgesBySeed(run);
+      hashed = Math.min(hashed, System.nanoTime() - start);
+    }
+
+    this.report("sort Edges with EdgeComparator", comparator);
+    this.report("counting sort of Edges", counting);
+    this.report("counting sort of edge ids (with weights)", ids);
+    this.report("shuffle of edge ids", shuffle);
+    this.report("counting sort of edge ids (hashed weights)", hashed);
+  }
+
+  /**
+   * compares removing the minimal spanning tree from the edges with removeAll
+   * and with Maze.removeMST. removeAll is quadratic, so it is only timed once
+   * and only on small mazes.
+   */
+  void wallDerivation(int height, int width) {
+    Maze maze = new Maze(height, width, new Random(0));
+    maze.sortEdges();
+    maze.createMST();
+    ArrayList<Edge> sorted = new ArrayList<Edge>(maze.edges);
+
+    long removeMST = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      maze.edges = new ArrayList<Edge>(sorted);
+      System.gc();
+      long start = System.nanoTime();
+      maze.removeMST();
+      removeMST = Math.min(removeMST, System.nanoTime() - start);
+    }
+
+    if ((long) height * width <= QUADRATIC_CELLS) {
+      maze.edges = new ArrayList<Edge>(sorted);
+      System.gc();
+      long start = System.nanoTime();
+      maze.edges.removeAll(maze.mst);
+      this.report("edges.removeAll(mst)", System.nanoTime() - start);
+    }
+    this.report("removeMST", removeMST);
+  }
+
+  /**
+   * times carving a maze with every generator.
+   */
+  void generators(int height, int width) {
+    MazeGenerator[] generators = { new KruskalGenerator(), new KruskalGenerator(true),
+        new SeededKruskalGenerator(), new PrimGenerator(), new BacktrackerGenerator(),
+        new WilsonGenerator(), new EllerGenerator(), new ParallelGenerator() };
+    String[] names = { "kruskal (weighted)", "kruskal (shuffled)", "kruskal (seeded)",
+        "prim", "recursive backtracker",
+        "wilson", "eller", "parallel tiles" };
+
+    for (int i = 0; i < generators.length; i++) {
+      long best = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        System.gc();
+        long start = System.nanoTime();
+        new MazeGrid(height, width, new Random(run), generators[i]);
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      this.report("generate with " + names[i], best);
+    }
+  }
+
+  /**
+   * times every strategy of GridSearch from the top left to the bottom right
+   * cell, on a kruskal and a recursive backtracker maze, and counts the cells
+   * each one expands.
+   */
+  void solvers(int height, int width) {
+    MazeGrid[] grids = { new MazeGrid(height, width, new Random(0)),
+        new MazeGrid(height, width, new Random(0), new BacktrackerGenerator()) };
+    String[] mazes = { "kruskal", "backtracker" };
+    int[] strategies = { GridSearch.BREADTH_FIRST, GridSearch.DEPTH_FIRST, GridSearch.A_STAR,
+        GridSearch.GREEDY, GridSearch.BIDIRECTIONAL, GridSearch.JUNCTIONS };
+    String[] names = { "breadth-first", "depth-first", "A*", "greedy", "bidirectional",
+        "junction graph" };
+
+    for (int m = 0; m < grids.length; m++) {
+      GridSearch search = new GridSearch(grids[m]);
+      for (int i = 0; i < strategies.length; i++) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+          long start = System.nanoTime();
+          search.search(0, grids[m].cells() - 1, strategies[i]);
+          best = Math.min(best, System.nanoTime() - start);
+        }
+        this.report("solve " + mazes[m] + " with " + names[i], best, search.expanded);
+      }
+    }
+  }
+
+  /**
+   * times rooting a kruskal maze in a TreeIndex and answering random path
+   * queries from it, against answering them with a breadth-first search.
+   */
+  void treeQueries(int height, int width) {
+    MazeGrid grid = new MazeGrid(height, width, new Random(0));
+    int queries = 1000;
+    long build = Long.MAX_VALUE;
+    TreeIndex index = null;
+    for (int run = 0; run < RUNS; run++) {
+      System.gc();
+      long start = System.nanoTime();
+      index = new TreeIndex(grid, 0);
+      build = Math.min(build, System.nanoTime() - start);
+    }
+    this.report("root the tree index", build);
+
+    Random rand = new Random(1);
+    int[] pairs = new int[2 * queries];
+    for (int i = 0; i < pairs.length; i++) {
+      pairs[i] = rand.nextInt(grid.cells());
+    }
+
+    long lengths = Long.MAX_VALUE;
+    long paths = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < queries; i++) {
+        index.distance(pairs[2 * i], pairs[2 * i + 1]);
+      }
+      lengths = Math.min(lengths, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      for (int i = 0; i < queries; i++) {
+        index.path(pairs[2 * i], pairs[2 * i + 1]);
+      }
+      paths = Math.min(paths, System.nanoTime() - start);
+    }
+    this.report(queries + " path lengths from the tree index", lengths);
+    this.report(queries + " paths from the tree index", paths);
+
+    // a search per query is slow, so only a few are timed and scaled up
+    GridSearch search = new GridSearch(grid);
+    int searches = 20;
+    long start = System.nanoTime();
+    for (int i = 0; i < searches; i++) {
+      search.search(pairs[2 * i], pairs[2 * i + 1], GridSearch.BREADTH_FIRST);
+    }
+    this.report(queries + " paths by breadth-first search (estimated)",
+        (System.nanoTime() - start) / searches * queries);
+  }
+
+  /**
+   * times answering a batch of random queries with a PathService, and prints
+   * how many queries a second it answered.
+   */
+  void batchQueries(int height, int width) {
+    MazeGrid grid = new MazeGrid(height, width, new Random(0));
+    PathService service = new PathService(grid);
+    Random rand = new Random(2);
+    int[] queries = new int[200000];
+    for (int i = 0; i < queries.length; i++) {
+      queries[i] = rand.nextInt(grid.cells());
+    }
+
+    // every path holds all of its cells, so fewer of them are asked for
+    int[] pathQueries = Arrays.copyOf(queries, queries.length / 10);
+
+    double lengths = 0;
+    double paths = 0;
+    for (int run = 0; run < RUNS; run++) {
+      service.lengths(queries);
+      lengths = Math.max(lengths, service.throughput());
+      System.gc();
+      service.paths(pathQueries);
+      paths = Math.max(paths, service.throughput());
+    }
+    System.out.printf("%-45s %10.0f queries/s%n", "batch path lengths ("
+        + service.pool.getParallelism() + " threads)", lengths);
+    System.out.printf("%-45s %10.0f queries/s%n", "batch paths", paths);
+  }
+
+  /**
+   * times computing the distance field from the first cell of a kruskal maze,
+   * with chunks on the common pool and with every level on one thread.
+   */
+  void distanceField(int height, int width) {
+    MazeGrid grid = new MazeGrid(height, width, new Random(0));
+    DistanceField[] fields = { new DistanceField(grid),
+        new DistanceField(grid, ForkJoinPool.commonPool(), Integer.MAX_VALUE) };
+    String[] names = { "distance field (chunks on the common pool)",
+        "distance field (one thread)" };
+
+    for (int i = 0; i < fields.length; i++) {
+      long best = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        System.gc();
+        long start = System.nanoTime();
+        fields[i].compute(0);
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      this.report(names[i], best);
+    }
+  }
+
+  /**
+   * times measuring a kruskal maze with MazeMetrics.
+   */
+  void metrics(int height, int width) {
+    MazeGrid grid = new MazeGrid(height, width, new Random(0));
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      System.gc();
+      long start = System.nanoTime();
+      new MazeMetrics(grid);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    this.report("maze metrics", best);
+  }
+
+  /**
+   * times drawing a frame of a kruskal maze: the whole maze into its layer, if
+   * it is small enough to be drawn whole, then the screen of the camera up
+   * close and zoomed all the way out.
+   */
+  void frames(int height, int width) {
+    Maze maze = new Maze(new MazeGrid(height, width, new Random(0)));
+    long best;
+    if (maze.drawnWhole()) {
+      int nodeS = maze.cellPixels();
+      best = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        System.gc();
+        long start = System.nanoTime();
+        new MazeLayer(maze).update(nodeS);
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      this.report("whole maze layer (" + nodeS + " px cells)", best);
+    }
+
+    MazeView view = new MazeView(maze, SCREEN_PIXELS, SCREEN_PIXELS);
+    view.render();
+    int[] zooms = { 3, -view.levels };
+    for (int zoom : zooms) {
+      view.zoom = zoom;
+      best = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        long start = System.nanoTime();
+        view.render();
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      this.report("camera frame (zoom " + zoom + ")", best);
+    }
+  }
+
+  /**
+   * times drawing a kruskal maze without a window, four pixels to a cell, in
+   * stripes on the common pool and on one thread.
+   */
+  void headless(int height, int width) {
+    MazeGrid grid = new MazeGrid(height, width, new Random(0));
+    MazeRenderer[] renderers = { new MazeRenderer(grid, 4),
+        new MazeRenderer(grid, 4, new ForkJoinPool(1), 64) };
+    String[] names = { "headless render (stripes on the common pool)",
+        "headless render (one thread)" };
+
+    for (int i = 0; i < renderers.length; i++) {
+      long best = Long.MAX_VALUE;
+      double rate = 0;
+      for (int run = 0; run < RUNS; run++) {
+        renderers[i].render();
+        if (renderers[i].nanos < best) {
+          best = renderers[i].nanos;
+          rate = renderers[i].megapixelsPerSecond();
+        }
+      }
+      System.out.printf("%-45s %10.2f ms %10.1f MP/s%n", names[i], best / 1e6, rate);
+    }
+  }
+
+  /**
+   * times saving a kruskal maze as a maze file, mapping it back into memory
+   * and copying it onto the heap.
+   */
+  void files(int height, int width) {
+    MazeGrid grid = new MazeGrid(height, width, new Random(0));
+    try {
+      Path path = Files.createTempFile("benchmark", ".maze");
+      long best = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        long start = System.nanoTime();
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(path));
+        MazeFile.write(grid, 0, MazeFile.KRUSKAL, out);
+        out.close();
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      this.report("write maze file (" + Files.size(path) / 1024 + " KB)", best);
+
+      best = Long.MAX_VALUE;
+      MazeFile file = null;
+      for (int run = 0; run < RUNS; run++) {
+        long start = System.nanoTime();
+        file = new MazeFile(path);
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      this.report("map maze file", best);
+
+      best = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        System.gc();
+        long start = System.nanoTime();
+        file.toGrid();
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      this.report("copy mapped maze onto the heap", best);
+      Files.delete(path);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * times writing a kruskal maze as an archive of 256 cell tiles, reading the
+   * tile around one cell and reading the whole maze back.
+   */
+  void archives(int height, int width) {
+    MazeGrid grid = new MazeGrid(height, width, new Random(0));
+    try {
+      Path path = Files.createTempFile("benchmark", ".archive");
+      long best = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        long start = System.nanoTime();
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(path));
+        MazeArchive.write(grid, 0, MazeFile.KRUSKAL, 256, out);
+        out.close();
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      MazeArchive archive = new MazeArchive(path);
+      this.report(String.format("write maze archive (%.2f bits/cell)", archive.bitsPerCell()),
+          best);
+      archive.close();
+
+      best = Long.MAX_VALUE;
+      long whole = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        archive = new MazeArchive(path);
+        long start = System.nanoTime();
+        archive.region(width / 2, height / 2, Math.min(64, width / 2), Math.min(64, height / 2));
+        best = Math.min(best, System.nanoTime() - start);
+        archive.close();
+
+        archive = new MazeArchive(path);
+        start = System.nanoTime();
+        archive.toGrid();
+        whole = Math.min(whole, System.nanoTime() - start);
+        archive.close();
+      }
+      this.report("read 64x64 cells of the archive", best);
+      this.report("read the whole archive", whole);
+      Files.delete(path);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * prints how long a search took and how many cells it expanded.
+   */
+  void report(String stage, long nanos, int expanded) {
+    System.out.printf("%-45s %10.2f ms %10d expanded%n", stage, nanos / 1e6, expanded);
+  }
+
+  /**
+   * prints how long a stage took.
+   */
+  void report(String stage, long nanos) {
+    System.out.printf("%-45s %10.2f ms%n", stage, nanos / 1e6);
+  }
+}
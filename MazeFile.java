@@ -0,0 +1,288 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * reads and writes mazes in a compact binary file. The file starts with a
+ * header of HEADER_BYTES bytes, all numbers big-endian:
+ *
+ * <pre>
+ * int  MAGIC
+ * int  VERSION
+ * int  width
+ * int  height
+ * long the seed the maze was generated from, or 0
+ * int  the id of the generator, one of the constants below
+ * int  0, kept for later versions
+ * </pre>
+ *
+ * followed by every row from the top, packed the way PackedRowSink packs them:
+ * two bits per cell for the RIGHT and BOTTOM walls, every row starting on a
+ * new byte. The border of the maze is never stored.
+ *
+ * A MazeFile maps the rows into memory instead of reading them, so opening a
+ * file takes the same time however large the maze is, the walls are only read
+ * from the disk when they are looked at, and processes that open the same file
+ * share its pages. Since a mapping holds at most 2^31 bytes, large files are
+ * mapped as several segments of whole rows.
+ */
+class MazeFile {
+  static final int MAGIC = 0x4D415A45;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 32;
+
+  // the generators a maze in a file can come from
+  static final int UNKNOWN = 0;
+  static final int KRUSKAL = 1;
+  static final int SEEDED_KRUSKAL = 2;
+  static final int PRIM = 3;
+  static final int BACKTRACKER = 4;
+  static final int WILSON = 5;
+  static final int ELLER = 6;
+  static final int PARALLEL = 7;
+
+  // the most bytes mapped as one segment
+  static final int SEGMENT_BYTES = 1 << 30;
+
+  int width;
+  int height;
+  long seed;
+  int generator;
+
+  // the number of bytes of every packed row
+  int rowBytes;
+  // the number of rows in every segment but the last
+  int segmentRows;
+  MappedByteBuffer[] segments;
+
+  /**
+   * constructor that maps the maze of the given file into memory. The file can
+   * be closed, moved or read by other processes while it is mapped.
+   *
+   * @param path the file to open
+   * @throws IOException if the file cannot be read or is not a maze file this
+   *                     version can read
+   */
+  MazeFile(Path path) throws IOException {
+    this(path, SEGMENT_BYTES);
+  }
+
+  /**
+   * constructor that maps the maze of the given file in segments of at most
+   * the given number of bytes, or of one row if a row is longer.
+   *
+   * @param path         the file to open
+   * @param segmentBytes the most bytes mapped as one segment
+   * @throws IOException if the file cannot be read or is not a maze file this
+   *                     version can read
+   */
+  MazeFile(Path path, int segmentBytes) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      if (channel.size() < HEADER_BYTES) {
+        throw new IOException("not a maze file");
+      }
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      if (header.getInt() != MAGIC) {
+        throw new IOException("not a maze file");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("unsupported maze file version " + version);
+      }
+      this.width = header.getInt();
+      this.height = header.getInt();
+      this.seed = header.getLong();
+      this.generator = header.getInt();
+      if (this.width < 1 || this.height < 1) {
+        throw new IOException("a maze file needs at least one cell");
+      }
+
+      this.rowBytes = PackedRowSink.packedLength(this.width);
+      if (channel.size() < HEADER_BYTES + (long) this.rowBytes * this.height) {
+        throw new IOException("the maze file is cut short");
+      }
+      this.segmentRows = Math.max(1, segmentBytes / this.rowBytes);
+      int count = (this.height + this.segmentRows - 1) / this.segmentRows;
+      this.segments = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        long first = (long) i * this.segmentRows;
+        long rows = Math.min(this.segmentRows, this.height - first);
+        this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+            HEADER_BYTES + first * this.rowBytes, rows * this.rowBytes);
+      }
+    }
+    finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * writes the given maze to the stream.
+   *
+   * @param grid      the maze to write
+   * @param seed      the seed it was generated from, or 0
+   * @param generator the id of the generator it came from
+   * @param out       the stream to write to, which is not closed
+   */
+  static void write(MazeGrid grid, long seed, int generator, OutputStream out)
+      throws IOException {
+    writeHeader(grid.width, grid.height, seed, generator, out);
+    PackedRowSink sink = new PackedRowSink(out, grid.width);
+    byte[] row = new byte[grid.width];
+    for (int y = 0; y < grid.height; y++) {
+      for (int x = 0; x < grid.width; x++) {
+        int walls = grid.walls[grid.cellAt(x, y)] & (MazeGrid.RIGHT | MazeGrid.BOTTOM);
+        // the border is never stored
+        if (x == grid.width - 1) {
+          walls &= ~MazeGrid.RIGHT;
+        }
+        if (y == grid.height - 1) {
+          walls &= ~MazeGrid.BOTTOM;
+        }
+        row[x] = (byte) walls;
+      }
+      sink.acceptRow(y, row);
+    }
+    out.flush();
+  }
+
+  /**
+   * generates a maze with eller's algorithm straight into the stream, so that
+   * mazes far larger than the heap can be written.
+   *
+   * @param width  the number of cells in every row
+   * @param height the number of rows
+   * @param seed   the seed of the random choices
+   * @param out    the stream to write to, which is not closed
+   */
+  static void writeEller(int width, int height, long seed, OutputStream out)
+      throws IOException {
+    writeHeader(width, height, seed, ELLER, out);
+    new EllerStream(width, new Random(seed)).generate(height, new PackedRowSink(out, width));
+    out.flush();
+  }
+
+  /**
+   * writes the header of a maze file.
+   */
+  static void writeHeader(int width, int height, long seed, int generator, OutputStream out)
+      throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(width);
+    data.writeInt(height);
+    data.writeLong(seed);
+    data.writeInt(generator);
+    data.writeInt(0);
+    data.flush();
+  }
+
+  /**
+   * returns the id of the given generator, or UNKNOWN.
+   */
+  static int idOf(MazeGenerator generator) {
+    if (generator instanceof KruskalGenerator) {
+      return KRUSKAL;
+    }
+    else if (generator instanceof SeededKruskalGenerator) {
+      return SEEDED_KRUSKAL;
+    }
+    else if (generator instanceof PrimGenerator) {
+      return PRIM;
+    }
+    else if (generator instanceof BacktrackerGenerator) {
+      return BACKTRACKER;
+    }
+    else if (generator instanceof WilsonGenerator) {
+      return WILSON;
+    }
+    else if (generator instanceof EllerGenerator) {
+      return ELLER;
+    }
+    else if (generator instanceof ParallelGenerator) {
+      return PARALLEL;
+    }
+    else {
+      return UNKNOWN;
+    }
+  }
+
+  /**
+   * returns the RIGHT and BOTTOM walls stored for the given cell.
+   */
+  int stored(int x, int y) {
+    int index = (y % this.segmentRows) * this.rowBytes + (x >>> 2);
+    int packed = this.segments[y / this.segmentRows].get(index);
+    return (packed >>> ((x & 3) << 1)) & (MazeGrid.RIGHT | MazeGrid.BOTTOM);
+  }
+
+  /**
+   * returns the walls around the given cell, the same as MazeGrid.walls holds
+   * for it: the stored walls, the walls stored for its left and top neighbors
+   * and the border of the maze.
+   *
+   * @param x the column of the cell
+   * @param y the row of the cell
+   * @return a mask of MazeGrid.RIGHT, BOTTOM, LEFT and TOP
+   */
+  int walls(int x, int y) {
+    if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+      throw new IllegalArgumentException("cell " + x + ", " + y + " is not in the maze");
+    }
+    int walls = this.stored(x, y);
+    if (x == this.width - 1) {
+      walls |= MazeGrid.RIGHT;
+    }
+    if (y == this.height - 1) {
+      walls |= MazeGrid.BOTTOM;
+    }
+    if (x == 0 || (this.stored(x - 1, y) & MazeGrid.RIGHT) != 0) {
+      walls |= MazeGrid.LEFT;
+    }
+    if (y == 0 || (this.stored(x, y - 1) & MazeGrid.BOTTOM) != 0) {
+      walls |= MazeGrid.TOP;
+    }
+    return walls;
+  }
+
+  /**
+   * checks if a player can walk from the given cell in the given direction.
+   */
+  boolean canMove(int x, int y, int dir) {
+    return (this.walls(x, y) & dir) == 0;
+  }
+
+  /**
+   * hands every row of the maze to the sink, from the top.
+   *
+   * @param sink where the rows go
+   */
+  void replay(RowSink sink) {
+    byte[] packed = new byte[this.rowBytes];
+    byte[] row = new byte[this.width];
+    for (int y = 0; y < this.height; y++) {
+      ByteBuffer segment = this.segments[y / this.segmentRows].duplicate();
+      segment.position((y % this.segmentRows) * this.rowBytes);
+      segment.get(packed);
+      PackedRowSink.unpack(packed, row);
+      sink.acceptRow(y, row);
+    }
+  }
+
+  /**
+   * copies the maze onto the heap as a grid, for a Maze to play it.
+   */
+  MazeGrid toGrid() {
+    MazeGrid grid = new MazeGrid(this.height, this.width);
+    this.replay(new GridRowSink(grid));
+    return grid;
+  }
+}
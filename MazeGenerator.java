@@ -0,0 +1,16 @@
+import java.util.Random;
+
+/**
+ * represents a way of carving a perfect maze, where every cell can be reached
+ * from every other cell by exactly one path.
+ */
+interface MazeGenerator {
+  /**
+   * carves a perfect maze into the given grid, which starts with every wall
+   * standing.
+   *
+   * @param grid the grid to carve
+   * @param rand the source of every random choice
+   */
+  void generate(MazeGrid grid, Random rand);
+}
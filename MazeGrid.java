@@ -0,0 +1,429 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * represents a maze as a compact grid of cells instead of an object graph.
+ * Every cell is identified by its index in column-major order (x * height + y),
+ * the same order Maze.nodes uses, and stores a bitmask of its four walls.
+ * Nodes and Edges are only created on demand as views over the grid.
+ */
+class MazeGrid {
+  // wall bits, one per direction
+  static final int RIGHT = 1;
+  static final int BOTTOM = 2;
+  static final int LEFT = 4;
+  static final int TOP = 8;
+  static final int ALL = RIGHT | BOTTOM | LEFT | TOP;
+
+  // the largest weight a randomly weighted edge can get
+  static final int MAX_WEIGHT = 1000;
+
+  int height;
+  int width;
+
+  /**
+   * the walls that are still standing around each cell, indexed by cell id.
+   */
+  byte[] walls;
+
+  /**
+   * constructor that makes a grid where every cell is closed off by all four
+   * of its walls.
+   *
+   * @param height of the maze.
+   * @param width  of the maze.
+   */
+  MazeGrid(int height, int width) {
+    if (height < 1 || width < 1) {
+      throw new IllegalArgumentException("a maze needs at least one cell");
+    }
+    if ((long) height * width > Integer.MAX_VALUE / 2) {
+      throw new IllegalArgumentException("a maze can have at most " + (Integer.MAX_VALUE / 2)
+          + " cells");
+    }
+    this.height = height;
+    this.width = width;
+    this.walls = new byte[height * width];
+    Arrays.fill(this.walls, (byte) ALL);
+  }
+
+  /**
+   * constructor that generates a random maze with kruskal's algorithm. The
+   * weights are drawn from rand in the same order as Maze.setMaze draws them, so
+   * a grid and a Maze built from equally seeded Randoms describe the same maze.
+   *
+   * @param height of the maze.
+   * @param width  of the maze.
+   * @param rand   the source of the edge weights.
+   */
+  MazeGrid(int height, int width, Random rand) {
+    this(height, width, rand, new KruskalGenerator());
+  }
+
+  /**
+   * constructor that generates a random maze with the given generator.
+   *
+   * @param height    of the maze.
+   * @param width     of the maze.
+   * @param rand      the source of every random choice.
+   * @param generator the algorithm that carves the maze.
+   */
+  MazeGrid(int height, int width, Random rand, MazeGenerator generator) {
+    this(height, width);
+    generator.generate(this, rand);
+  }
+
+  /**
+   * constructor that generates a random maze with kruskal's algorithm, where the
+   * weight of every edge is a hash of the seed and the edge's id. Unlike the
+   * weights drawn from a Random, they do not depend on the order the edges are
+   * visited in.
+   *
+   * @param height of the maze.
+   * @param width  of the maze.
+   * @param seed   the seed of the edge weights.
+   */
+  MazeGrid(int height, int width, long seed) {
+    this(height, width);
+    this.kruskal(this.edgesBySeed(seed));
+  }
+
+  /**
+   * returns the number of edges between neighboring cells.
+   */
+  int numEdges() {
+    return this.height * (this.width - 1) + (this.height - 1) * this.width;
+  }
+
+  /**
+   * returns the id of every edge, in the order Maze.setMaze creates them.
+   */
+  int[] edgeIds() {
+    int[] ids = new int[this.numEdges()];
+    int k = 0;
+    for (int i = 0; i < this.cells(); i++) {
+      if (this.neighbor(i, RIGHT) >= 0) {
+        ids[k] = edgeId(i, RIGHT);
+        k++;
+      }
+      if (this.neighbor(i, BOTTOM) >= 0) {
+        ids[k] = edgeId(i, BOTTOM);
+        k++;
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * gives every edge a random weight from 1 to MAX_WEIGHT and orders the edges
+   * by weight with a counting sort. Equal weights keep the order the edges were
+   * created in, just like sorting Maze.edges does.
+   *
+   * @param rand the source of the weights
+   * @return the edge ids ordered by weight
+   */
+  int[] edgesByWeight(Random rand) {
+    int numEdges = this.numEdges();
+    short[] weights = new short[numEdges];
+    int[] start = new int[MAX_WEIGHT + 2];
+
+    // draws the weights and counts how many edges have each weight
+    for (int k = 0; k < numEdges; k++) {
+      int weight = rand.nextInt(MAX_WEIGHT) + 1;
+      weights[k] = (short) weight;
+      start[weight + 1]++;
+    }
+
+    // turns the counts into the position of the first edge of each weight
+    for (int w = 1; w < start.length; w++) {
+      start[w] += start[w - 1];
+    }
+
+    int[] order = new int[numEdges];
+    int k = 0;
+    for (int i = 0; i < this.cells(); i++) {
+      if (this.neighbor(i, RIGHT) >= 0) {
+        order[start[weights[k]]++] = edgeId(i, RIGHT);
+        k++;
+      }
+      if (this.neighbor(i, BOTTOM) >= 0) {
+        order[start[weights[k]]++] = edgeId(i, BOTTOM);
+        k++;
+      }
+    }
+    return order;
+  }
+
+  /**
+   * orders the edges by the weights SeedHash gives them for the given seed, with
+   * a counting sort. The weights are hashed again instead of stored, since
+   * hashing is cheaper than the memory for them. Equal weights keep the order
+   * of the edge ids.
+   *
+   * @param seed the seed of the weights
+   * @return the edge ids ordered by weight
+   */
+  int[] edgesBySeed(long seed) {
+    int[] ids = this.edgeIds();
+    int[] start = new int[MAX_WEIGHT + 2];
+
+    for (int id : ids) {
+      start[SeedHash.weight(seed, id) + 1]++;
+    }
+    for (int w = 1; w < start.length; w++) {
+      start[w] += start[w - 1];
+    }
+
+    int[] order = new int[ids.length];
+    for (int id : ids) {
+      order[start[SeedHash.weight(seed, id)]++] = id;
+    }
+    return order;
+  }
+
+  /**
+   * orders the edges by a random permutation, without any weights.
+   *
+   * @param rand the source of the permutation
+   * @return the shuffled edge ids
+   */
+  int[] shuffledEdges(Random rand) {
+    int[] order = this.edgeIds();
+    for (int i = order.length - 1; i > 0; i--) {
+      int j = rand.nextInt(i + 1);
+      int temp = order[i];
+      order[i] = order[j];
+      order[j] = temp;
+    }
+    return order;
+  }
+
+  /**
+   * carves the edges that kruskal's algorithm picks for the minimal spanning
+   * tree, trying them in the given order.
+   *
+   * @param order the edge ids, from the first to the last to try
+   */
+  void kruskal(int[] order) {
+    int cells = this.cells();
+    DisjointSet sets = new DisjointSet(cells);
+    int joined = 0;
+    for (int i = 0; i < order.length && joined < cells - 1; i++) {
+      int cell = edgeCell(order[i]);
+      int dir = edgeDir(order[i]);
+
+      if (sets.union(cell, this.neighbor(cell, dir))) {
+        this.carve(cell, dir);
+        joined++;
+      }
+    }
+  }
+
+  /**
+   * returns the number of cells in the grid.
+   */
+  int cells() {
+    return this.height * this.width;
+  }
+
+  /**
+   * returns the id of the cell at the given position.
+   *
+   * @param x the column of the cell
+   * @param y the row of the cell
+   * @return the id of the cell
+   */
+  int cellAt(int x, int y) {
+    return x * this.height + y;
+  }
+
+  /**
+   * returns the column of the given cell.
+   */
+  int xOf(int cell) {
+    return cell / this.height;
+  }
+
+  /**
+   * returns the row of the given cell.
+   */
+  int yOf(int cell) {
+    return cell % this.height;
+  }
+
+  /**
+   * returns the id of the cell next to the given cell in the given direction.
+   *
+   * @param cell the cell to start from
+   * @param dir  one of RIGHT, BOTTOM, LEFT or TOP
+   * @return the id of the neighbor, or -1 if the cell is on that border
+   */
+  int neighbor(int cell, int dir) {
+    switch (dir) {
+      case RIGHT:
+        return cell < this.height * (this.width - 1) ? cell + this.height : -1;
+      case BOTTOM:
+        return (cell + 1) % this.height != 0 ? cell + 1 : -1;
+      case LEFT:
+        return cell >= this.height ? cell - this.height : -1;
+      case TOP:
+        return cell % this.height != 0 ? cell - 1 : -1;
+      default:
+        throw new IllegalArgumentException("not a direction: " + dir);
+    }
+  }
+
+  /**
+   * checks if the wall on the given side of the cell is standing.
+   *
+   * @param cell the cell to check
+   * @param dir  one of RIGHT, BOTTOM, LEFT or TOP
+   * @return true if the cell is closed off in that direction
+   */
+  boolean hasWall(int cell, int dir) {
+    return (this.walls[cell] & dir) != 0;
+  }
+
+  /**
+   * checks if there is a passage from the given cell to its neighbor in the
+   * given direction. The border of the maze is always walled.
+   *
+   * @param cell the cell to move from
+   * @param dir  one of RIGHT, BOTTOM, LEFT or TOP
+   * @return true if the neighbor can be reached
+   */
+  boolean canMove(int cell, int dir) {
+    return (this.walls[cell] & dir) == 0;
+  }
+
+  /**
+   * removes the wall between the given cell and its neighbor in the given
+   * direction, on both sides.
+   *
+   * @param cell the cell to carve from
+   * @param dir  one of RIGHT, BOTTOM, LEFT or TOP
+   */
+  void carve(int cell, int dir) {
+    int other = this.neighbor(cell, dir);
+    if (other < 0) {
+      throw new IllegalArgumentException("cannot carve through the border of the maze");
+    }
+    this.walls[cell] &= ~dir;
+    this.walls[other] &= ~opposite(dir);
+  }
+
+  /**
+   * returns the direction opposite to the given one.
+   */
+  static int opposite(int dir) {
+    switch (dir) {
+      case RIGHT:
+        return LEFT;
+      case BOTTOM:
+        return TOP;
+      case LEFT:
+        return RIGHT;
+      case TOP:
+        return BOTTOM;
+      default:
+        throw new IllegalArgumentException("not a direction: " + dir);
+    }
+  }
+
+  /**
+   * returns the id of the edge on the given side of the cell. Only RIGHT and
+   * BOTTOM edges have ids, every LEFT or TOP edge is the RIGHT or BOTTOM edge of
+   * its neighbor.
+   */
+  static int edgeId(int cell, int dir) {
+    return (cell << 1) | (dir == BOTTOM ? 1 : 0);
+  }
+
+  /**
+   * returns the id of the edge between the given cell and its neighbor in any
+   * direction.
+   *
+   * @param cell the cell
+   * @param dir  one of RIGHT, BOTTOM, LEFT or TOP, not leading out of the grid
+   * @return the id of the edge
+   */
+  int edgeTo(int cell, int dir) {
+    if (dir == LEFT || dir == TOP) {
+      return edgeId(this.neighbor(cell, dir), opposite(dir));
+    }
+    return edgeId(cell, dir);
+  }
+
+  /**
+   * returns the cell whose RIGHT or BOTTOM side the given edge is.
+   */
+  static int edgeCell(int edge) {
+    return edge >>> 1;
+  }
+
+  /**
+   * returns the direction of the given edge from its cell, RIGHT or BOTTOM.
+   */
+  static int edgeDir(int edge) {
+    return (edge & 1) == 0 ? RIGHT : BOTTOM;
+  }
+
+  /**
+   * makes the Node view of every cell, in cell id order, with their neighbors
+   * set the same way Maze.setMaze sets them.
+   */
+  ArrayList<Node> nodes() {
+    ArrayList<Node> board = new ArrayList<Node>(this.cells());
+    for (int i = 0; i < this.width; i++) {
+      for (int j = 0; j < this.height; j++) {
+        board.add(new Node(i, j));
+      }
+    }
+
+    for (int i = 0; i < board.size(); i++) {
+      board.get(i).setNode(board, i, this.height, this.width);
+    }
+    return board;
+  }
+
+  /**
+   * makes the Edge view of every wall that is still standing inside the maze.
+   *
+   * @param board the Node views of this grid
+   * @return the walls, in edge id order
+   */
+  ArrayList<Edge> walls(ArrayList<Node> board) {
+    return this.edgeViews(board, true);
+  }
+
+  /**
+   * makes the Edge view of every wall that has been carved away.
+   *
+   * @param board the Node views of this grid
+   * @return the passages, in edge id order
+   */
+  ArrayList<Edge> passages(ArrayList<Node> board) {
+    return this.edgeViews(board, false);
+  }
+
+  /**
+   * makes the Edge views of the inner walls that are standing or carved away.
+   *
+   * @param board    the Node views of this grid
+   * @param standing whether to collect the standing walls or the passages
+   * @return the edges, in edge id order
+   */
+  ArrayList<Edge> edgeViews(ArrayList<Node> board, boolean standing) {
+    ArrayList<Edge> result = new ArrayList<Edge>();
+    for (int i = 0; i < this.cells(); i++) {
+      if (this.neighbor(i, RIGHT) >= 0 && this.hasWall(i, RIGHT) == standing) {
+        result.add(new Edge(board.get(i), board.get(this.neighbor(i, RIGHT))));
+      }
+      if (this.neighbor(i, BOTTOM) >= 0 && this.hasWall(i, BOTTOM) == standing) {
+        result.add(new Edge(board.get(i), board.get(this.neighbor(i, BOTTOM))));
+      }
+    }
+    return result;
+  }
+}
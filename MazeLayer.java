@@ -0,0 +1,161 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import javalib.worldimages.ComputedPixelImage;
+
+/**
+ * caches the picture of a Maze between frames. The background, the start and
+ * end cells and the walls are drawn into one image only when the maze
+ * changes, and the cells of the search are drawn into it as they are added,
+ * so a frame only costs as much as what changed since the last one. The
+ * player moves back and forth, so it is drawn on top of the image instead.
+ */
+class MazeLayer {
+  static final Color BACKGROUND = Color.LIGHT_GRAY;
+  static final Color WALL = Color.black;
+  static final Color START = Color.green;
+  static final Color END = Color.magenta;
+  static final Color EXPLORED = Color.cyan;
+  static final Color SOLUTION = Color.blue;
+
+  Maze maze;
+  ComputedPixelImage image;
+  int nodeS;
+
+  // what the image was drawn from, any change means it is drawn again
+  MazeGrid grid;
+  ArrayList<Node> movements;
+  ArrayList<Node> solution;
+  BackgroundSolver background;
+
+  // how many cells of each list are already in the image
+  int paintedMovements;
+  int paintedSolution;
+  int paintedExplored;
+
+  /**
+   * constructor for the layer of the given maze, drawn on the first update.
+   *
+   * @param maze the maze to draw
+   */
+  MazeLayer(Maze maze) {
+    this.maze = maze;
+  }
+
+  /**
+   * brings the image up to date with the maze and returns it.
+   *
+   * @param nodeS the size of a cell in pixels, at least 2 so that a cell has
+   *              room for its wall and its inside
+   * @return the picture of the maze without the player
+   */
+  ComputedPixelImage update(int nodeS) {
+    if (nodeS < 2) {
+      throw new IllegalArgumentException("a cell needs at least two pixels");
+    }
+    Maze m = this.maze;
+    if (this.image == null || nodeS != this.nodeS || m.grid != this.grid
+        || m.movements != this.movements || m.movements.size() < this.paintedMovements
+        || m.background != this.background
+        || (m.solution != this.solution && this.paintedSolution > 0)
+        || m.solution.size() < this.paintedSolution) {
+      this.redraw(nodeS);
+    }
+
+    while (this.paintedMovements < m.movements.size()) {
+      this.fillCell(m.movements.get(this.paintedMovements), EXPLORED);
+      this.paintedMovements++;
+    }
+    if (this.background != null) {
+      // reads how far the background search got, then only that many cells
+      int explored = this.background.explored;
+      while (this.paintedExplored < explored) {
+        this.fillCell(m.nodeAt(this.background.order[this.paintedExplored]), EXPLORED);
+        this.paintedExplored++;
+      }
+    }
+    this.solution = m.solution;
+    while (this.paintedSolution < m.solution.size()) {
+      this.fillCell(m.solution.get(this.paintedSolution), SOLUTION);
+      this.paintedSolution++;
+    }
+    return this.image;
+  }
+
+  /**
+   * draws the background, the start and end cells and every wall into a new
+   * image, straight from the walls of the grid.
+   */
+  void redraw(int nodeS) {
+    Maze m = this.maze;
+    this.nodeS = nodeS;
+    this.grid = m.grid;
+    this.movements = m.movements;
+    this.solution = m.solution;
+    this.background = m.background;
+    this.paintedMovements = 0;
+    this.paintedSolution = 0;
+    this.paintedExplored = 0;
+
+    int w = m.width * nodeS;
+    int h = m.height * nodeS;
+    this.image = new ComputedPixelImage(w, h);
+    this.fill(0, 0, w, h, BACKGROUND);
+    this.fill(0, 0, nodeS, nodeS, START);
+    this.fill(w - nodeS, h - nodeS, nodeS, nodeS, END);
+
+    MazeGrid g = this.grid;
+    if (g == null) {
+      // before kruskal's algorithm has run every edge is still a wall
+      this.drawEdges();
+      return;
+    }
+    for (int cell = 0; cell < g.cells(); cell++) {
+      int x = g.xOf(cell) * nodeS;
+      int y = g.yOf(cell) * nodeS;
+      if (g.neighbor(cell, MazeGrid.RIGHT) >= 0 && g.hasWall(cell, MazeGrid.RIGHT)) {
+        this.fill(x + nodeS, y, 1, nodeS, WALL);
+      }
+      if (g.neighbor(cell, MazeGrid.BOTTOM) >= 0 && g.hasWall(cell, MazeGrid.BOTTOM)) {
+        this.fill(x, y + nodeS, nodeS, 1, WALL);
+      }
+    }
+  }
+
+  /**
+   * draws every edge of the maze's edge list as a wall.
+   */
+  void drawEdges() {
+    for (Edge cur : this.maze.edges) {
+      int x = Math.max(cur.first.x, cur.second.x) * this.nodeS;
+      int y = Math.max(cur.first.y, cur.second.y) * this.nodeS;
+      if (cur.first.x == cur.second.x) {
+        this.fill(x, y, this.nodeS, 1, WALL);
+      }
+      else {
+        this.fill(x, y, 1, this.nodeS, WALL);
+      }
+    }
+  }
+
+  /**
+   * fills the inside of the given cell, leaving its top and left edge where
+   * the walls are drawn.
+   */
+  void fillCell(Node nd, Color color) {
+    this.fill(nd.x * this.nodeS + 1, nd.y * this.nodeS + 1, this.nodeS - 1, this.nodeS - 1,
+        color);
+  }
+
+  /**
+   * fills a rectangle of the image, clipped to the image.
+   */
+  void fill(int left, int top, int w, int h, Color color) {
+    int right = Math.min(left + w, this.maze.width * this.nodeS);
+    int bottom = Math.min(top + h, this.maze.height * this.nodeS);
+    for (int y = Math.max(top, 0); y < bottom; y++) {
+      for (int x = Math.max(left, 0); x < right; x++) {
+        this.image.setPixel(x, y, color);
+      }
+    }
+  }
+}
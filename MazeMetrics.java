@@ -0,0 +1,201 @@
+/**
+ * measures how hard a maze is: the length of its solution, how many dead ends
+ * and junctions it has, its longest corridor, its river factor and its
+ * diameter. One pass counts the passages of every cell, one walks the
+ * corridors and two breadth-first sweeps find the distances, so the cost is
+ * linear in the number of cells.
+ *
+ * Apart from the grid, only one bit per cell and a queue as wide as the widest
+ * level of a sweep are needed, so very large mazes can be measured.
+ */
+class MazeMetrics {
+  MazeGrid grid;
+
+  /**
+   * the number of steps from the first to the last cell, or -1 if the last
+   * cell cannot be reached.
+   */
+  int solutionLength;
+
+  // the number of cells with exactly one passage
+  int deadEnds;
+  // the number of cells with three or four passages
+  int junctions;
+  // the number of cells with exactly two passages
+  int corridorCells;
+
+  /**
+   * the most cells with two passages in a row, between two cells that are dead
+   * ends or junctions.
+   */
+  int longestCorridor;
+
+  /**
+   * the share of cells with exactly two passages. The higher it is, the longer
+   * the passages flow before they branch or end, like a river.
+   */
+  double riverFactor;
+
+  /**
+   * the most steps between any two cells. It is exact for perfect mazes, and
+   * at most the real diameter for mazes with loops.
+   */
+  int diameter;
+
+  // the cells reached by the current sweep
+  VisitedSet seen;
+  // the queue of the current sweep, used as a ring
+  int[] queue;
+  // the cell the last sweep reached last, and its distance
+  int farthest;
+  int depth;
+
+  /**
+   * constructor that measures the given maze.
+   *
+   * @param grid the maze to measure
+   */
+  MazeMetrics(MazeGrid grid) {
+    this.grid = grid;
+    this.seen = new VisitedSet(grid.cells());
+    this.queue = new int[1024];
+
+    this.countPassages();
+    this.measureCorridors();
+
+    int last = grid.cells() - 1;
+    this.solutionLength = this.sweep(0, last);
+    // the cell farthest from any cell is at one end of a longest path
+    this.sweep(this.farthest, -1);
+    this.diameter = this.depth;
+  }
+
+  /**
+   * returns the number of passages out of the given cell.
+   */
+  int degree(int cell) {
+    return Integer.bitCount(~this.grid.walls[cell] & MazeGrid.ALL);
+  }
+
+  /**
+   * counts the dead ends, junctions and corridor cells.
+   */
+  void countPassages() {
+    for (int cell = 0; cell < this.grid.cells(); cell++) {
+      int degree = this.degree(cell);
+      if (degree == 1) {
+        this.deadEnds++;
+      }
+      else if (degree == 2) {
+        this.corridorCells++;
+      }
+      else if (degree > 2) {
+        this.junctions++;
+      }
+    }
+    this.riverFactor = (double) this.corridorCells / this.grid.cells();
+  }
+
+  /**
+   * walks every corridor from the dead ends and junctions at its ends and
+   * keeps the longest. Every corridor is walked once from each end.
+   */
+  void measureCorridors() {
+    for (int cell = 0; cell < this.grid.cells(); cell++) {
+      if (this.degree(cell) != 2) {
+        for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+          if (this.grid.canMove(cell, dir)) {
+            this.longestCorridor = Math.max(this.longestCorridor, this.walk(cell, dir));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * returns the number of cells with two passages in the corridor leaving the
+   * given cell in the given direction.
+   */
+  int walk(int cell, int dir) {
+    int length = 0;
+    int next = this.grid.neighbor(cell, dir);
+    int from = MazeGrid.opposite(dir);
+    while (this.degree(next) == 2) {
+      length++;
+      // the one passage that does not lead back
+      int out = ~this.grid.walls[next] & MazeGrid.ALL & ~from;
+      next = this.grid.neighbor(next, out);
+      from = MazeGrid.opposite(out);
+    }
+    return length;
+  }
+
+  /**
+   * searches breadth-first from the source, one level at a time, and
+   * remembers the cell it reached last and its distance.
+   *
+   * @param source the cell to search from
+   * @param target a cell to measure the distance to, or -1
+   * @return the number of steps to the target, or -1 if it was not reached
+   */
+  int sweep(int source, int target) {
+    this.seen.clear();
+    this.seen.add(source);
+    int head = 0;
+    int size = 1;
+    this.queue[0] = source;
+    this.farthest = source;
+    this.depth = 0;
+    int found = -1;
+
+    // the number of cells of the current level still in the queue
+    int levelLeft = 1;
+    int steps = 0;
+    while (size > 0) {
+      int cell = this.queue[head];
+      head = (head + 1) & (this.queue.length - 1);
+      size--;
+      levelLeft--;
+      this.farthest = cell;
+      this.depth = steps;
+      if (cell == target) {
+        found = steps;
+      }
+
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        if (this.grid.canMove(cell, dir)) {
+          int other = this.grid.neighbor(cell, dir);
+          if (this.seen.add(other)) {
+            if (size == this.queue.length) {
+              head = this.grow(head, size);
+            }
+            this.queue[(head + size) & (this.queue.length - 1)] = other;
+            size++;
+          }
+        }
+      }
+
+      if (levelLeft == 0) {
+        levelLeft = size;
+        steps++;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * doubles the ring of the queue, moving its cells to the front.
+   *
+   * @param head where the queue starts
+   * @param size the number of cells in the queue
+   * @return where the queue starts now
+   */
+  int grow(int head, int size) {
+    int[] bigger = new int[this.queue.length * 2];
+    for (int i = 0; i < size; i++) {
+      bigger[i] = this.queue[(head + i) & (this.queue.length - 1)];
+    }
+    this.queue = bigger;
+    return 0;
+  }
+}
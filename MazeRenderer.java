@@ -0,0 +1,212 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.imageio.ImageIO;
+
+/**
+ * draws a maze straight into the pixels of a BufferedImage, without a window
+ * and without an image object per wall, so that mazes with millions of cells
+ * can be drawn and saved as PNG files. The picture is the same as MazeLayer
+ * draws: the walls are on the left and top edge of every cell, and explored
+ * and solution cells are filled inside their walls.
+ *
+ * The image is split into stripes of cell rows that are drawn on a
+ * ForkJoinPool. Every stripe writes its own rows of pixels and only reads the
+ * grid and the marked cells, so stripes never need to wait for each other.
+ */
+class MazeRenderer {
+  MazeGrid grid;
+  int cellSize;
+  ForkJoinPool pool;
+  // the number of cell rows drawn without splitting them further
+  int stripe;
+
+  // the cells drawn as explored and as part of the solution
+  VisitedSet explored;
+  VisitedSet solution;
+
+  // the colors of MazeLayer, as RGB pixels
+  int background = MazeLayer.BACKGROUND.getRGB();
+  int wall = MazeLayer.WALL.getRGB();
+  int start = MazeLayer.START.getRGB();
+  int end = MazeLayer.END.getRGB();
+  int exploredColor = MazeLayer.EXPLORED.getRGB();
+  int solutionColor = MazeLayer.SOLUTION.getRGB();
+
+  BufferedImage image;
+  int[] pixels;
+
+  /**
+   * the time the last render took.
+   */
+  long nanos;
+
+  /**
+   * constructor for a renderer of the given maze that draws stripes of 64 cell
+   * rows on the common pool.
+   *
+   * @param grid     the maze to draw
+   * @param cellSize the width of a cell in pixels, walls included
+   */
+  MazeRenderer(MazeGrid grid, int cellSize) {
+    this(grid, cellSize, ForkJoinPool.commonPool(), 64);
+  }
+
+  /**
+   * constructor for a renderer of the given maze that draws on the given pool.
+   *
+   * @param grid     the maze to draw
+   * @param cellSize the width of a cell in pixels, walls included
+   * @param pool     the pool the stripes are drawn on
+   * @param stripe   the number of cell rows drawn without splitting them
+   */
+  MazeRenderer(MazeGrid grid, int cellSize, ForkJoinPool pool, int stripe) {
+    if (cellSize < 2) {
+      throw new IllegalArgumentException("a cell needs at least two pixels");
+    }
+    if (stripe < 1) {
+      throw new IllegalArgumentException("a stripe needs at least one row");
+    }
+    long pixels = (long) grid.width * cellSize * grid.height * cellSize;
+    if (pixels > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("the image would have " + pixels + " pixels");
+    }
+    this.grid = grid;
+    this.cellSize = cellSize;
+    this.pool = pool;
+    this.stripe = stripe;
+    this.explored = new VisitedSet(grid.cells());
+    this.solution = new VisitedSet(grid.cells());
+  }
+
+  /**
+   * marks the given cell as explored.
+   */
+  void explore(int cell) {
+    this.explored.add(cell);
+  }
+
+  /**
+   * marks the given cell as part of the solution.
+   */
+  void solve(int cell) {
+    this.solution.add(cell);
+  }
+
+  /**
+   * draws the maze into a new image.
+   *
+   * @return the image, whose pixels are also kept in pixels
+   */
+  BufferedImage render() {
+    long begin = System.nanoTime();
+    int w = this.grid.width * this.cellSize;
+    int h = this.grid.height * this.cellSize;
+    this.image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    this.pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+    this.pool.invoke(new StripeTask(this, 0, this.grid.height));
+    this.nanos = System.nanoTime() - begin;
+    return this.image;
+  }
+
+  /**
+   * returns how many millions of pixels a second the last render drew.
+   */
+  double megapixelsPerSecond() {
+    return (double) this.pixels.length / this.nanos * 1000;
+  }
+
+  /**
+   * writes the last image drawn as a PNG file to the given stream.
+   *
+   * @param out the stream to write to, which is not closed
+   */
+  void writePng(OutputStream out) throws IOException {
+    if (this.image == null) {
+      this.render();
+    }
+    if (!ImageIO.write(this.image, "png", out)) {
+      throw new IOException("no PNG writer is available");
+    }
+  }
+
+  /**
+   * draws the pixels of the given range of cell rows. Only the top row of
+   * pixels of a cell row and the one below it are drawn cell by cell, every
+   * other row of pixels is the same as the second and is copied from it.
+   *
+   * @param from the first row
+   * @param to   the end of the rows
+   */
+  void drawRows(int from, int to) {
+    int size = this.cellSize;
+    int w = this.grid.width * size;
+    int last = this.grid.cells() - 1;
+    for (int y = from; y < to; y++) {
+      int top = y * size * w;
+      int inner = top + w;
+      for (int x = 0; x < this.grid.width; x++) {
+        int cell = this.grid.cellAt(x, y);
+        int walls = this.grid.walls[cell];
+        int edge = this.background;
+        if (cell == 0) {
+          edge = this.start;
+        }
+        else if (cell == last) {
+          edge = this.end;
+        }
+        boolean leftWall = x > 0 && (walls & MazeGrid.LEFT) != 0;
+        boolean topWall = y > 0 && (walls & MazeGrid.TOP) != 0;
+        int inside = edge;
+        if (this.solution.contains(cell)) {
+          inside = this.solutionColor;
+        }
+        else if (this.explored.contains(cell)) {
+          inside = this.exploredColor;
+        }
+
+        int at = x * size;
+        this.pixels[top + at] = leftWall || topWall ? this.wall : edge;
+        Arrays.fill(this.pixels, top + at + 1, top + at + size, topWall ? this.wall : edge);
+        this.pixels[inner + at] = leftWall ? this.wall : edge;
+        Arrays.fill(this.pixels, inner + at + 1, inner + at + size, inside);
+      }
+      for (int oy = 2; oy < size; oy++) {
+        System.arraycopy(this.pixels, inner, this.pixels, top + oy * w, w);
+      }
+    }
+  }
+}
+
+/**
+ * draws a range of cell rows, splitting it in half until it is no longer than
+ * a stripe.
+ */
+class StripeTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  MazeRenderer renderer;
+  int from;
+  int to;
+
+  StripeTask(MazeRenderer renderer, int from, int to) {
+    this.renderer = renderer;
+    this.from = from;
+    this.to = to;
+  }
+
+  protected void compute() {
+    if (this.to - this.from <= this.renderer.stripe) {
+      this.renderer.drawRows(this.from, this.to);
+      return;
+    }
+
+    int middle = (this.from + this.to) >>> 1;
+    invokeAll(new StripeTask(this.renderer, this.from, middle),
+        new StripeTask(this.renderer, middle, this.to));
+  }
+}
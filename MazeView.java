@@ -0,0 +1,434 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import javalib.worldimages.ComputedPixelImage;
+
+/**
+ * draws the part of a Maze around the player into a picture the size of the
+ * screen, for mazes too large to draw whole. The camera follows the player,
+ * can be panned away from it and zoomed in and out by powers of two.
+ *
+ * At a zoom of 1 or more a cell is 2^zoom pixels wide and only the cells on
+ * the screen are looked at. At a zoom of 0 or less a pixel stands for a block
+ * of 2^-zoom by 2^-zoom cells, and is colored from counts kept per block: how
+ * many walls it has, and how many of its cells were explored or are on the
+ * solution. The wall counts are summed once per grid, and the other counts
+ * are kept up to date as cells are added to the search, so every frame costs
+ * as much as the screen has pixels however large the maze is.
+ */
+class MazeView {
+  // how far in and out the view can zoom
+  static final int MAX_ZOOM = 5;
+  static final Color OUTSIDE = Color.white;
+  static final Color PLAYER = Color.black;
+
+  Maze maze;
+  int screenWidth;
+  int screenHeight;
+  ComputedPixelImage image;
+
+  /**
+   * the cell size is 2^zoom pixels, or, if zoom is less than 1, a pixel is a
+   * block of 2^-zoom cells on a side.
+   */
+  int zoom = 3;
+
+  // how many cells the center of the view is away from the player
+  int panX;
+  int panY;
+
+  // what the counts were made from, any change means they are made again
+  MazeGrid grid;
+  ArrayList<Node> movements;
+  ArrayList<Node> solution;
+  int countedMovements;
+  int countedSolution;
+
+  // the cells of the search and of the solution
+  VisitedSet explored;
+  VisitedSet onSolution;
+
+  // the number of levels of blocks, the last of which is one block
+  int levels;
+
+  /**
+   * the counts of the blocks of each level by block id, which is column-major
+   * like the cell ids. Level 0 is the cells themselves and is not stored.
+   */
+  int[][] walls;
+  int[][] exploredCells;
+  int[][] solutionCells;
+
+  // the grays blocks are drawn in, from no walls to only walls
+  Color[] shades;
+
+  /**
+   * constructor for a view of the given maze that fills a screen of the given
+   * size.
+   *
+   * @param maze         the maze to draw
+   * @param screenWidth  the width of the screen in pixels
+   * @param screenHeight the height of the screen in pixels
+   */
+  MazeView(Maze maze, int screenWidth, int screenHeight) {
+    if (screenWidth < 1 || screenHeight < 1) {
+      throw new IllegalArgumentException("a view needs at least one pixel");
+    }
+    this.maze = maze;
+    this.screenWidth = screenWidth;
+    this.screenHeight = screenHeight;
+    this.image = new ComputedPixelImage(screenWidth, screenHeight);
+
+    this.shades = new Color[17];
+    for (int i = 0; i < this.shades.length; i++) {
+      // from the background at no walls to the wall color at every wall
+      int gray = 192 - 192 * i / (this.shades.length - 1);
+      this.shades[i] = new Color(gray, gray, gray);
+    }
+  }
+
+  /**
+   * zooms in one step, up to MAX_ZOOM.
+   */
+  void zoomIn() {
+    this.zoom = Math.min(this.zoom + 1, MAX_ZOOM);
+  }
+
+  /**
+   * zooms out one step, until one block covers the whole maze.
+   */
+  void zoomOut() {
+    this.zoom = Math.max(this.zoom - 1, -this.levelsFor(this.maze.width, this.maze.height));
+  }
+
+  /**
+   * moves the view a quarter of the screen in the given direction.
+   *
+   * @param dx -1, 0 or 1 for left, nowhere or right
+   * @param dy -1, 0 or 1 for up, nowhere or down
+   */
+  void pan(int dx, int dy) {
+    this.panX += dx * this.cellsAcross(this.screenWidth) / 4;
+    this.panY += dy * this.cellsAcross(this.screenHeight) / 4;
+  }
+
+  /**
+   * centers the view on the player again.
+   */
+  void follow() {
+    this.panX = 0;
+    this.panY = 0;
+  }
+
+  /**
+   * returns the number of cells the given number of pixels spans at the
+   * current zoom, at least 1.
+   */
+  int cellsAcross(int pixels) {
+    if (this.zoom > 0) {
+      return Math.max(1, pixels >> this.zoom);
+    }
+    else {
+      return pixels << -this.zoom;
+    }
+  }
+
+  /**
+   * returns the column of the cell at the center of the view, which is kept
+   * inside the maze.
+   */
+  int centerX() {
+    return Math.max(0, Math.min(this.maze.player.x + this.panX, this.maze.width - 1));
+  }
+
+  /**
+   * returns the row of the cell at the center of the view, which is kept
+   * inside the maze.
+   */
+  int centerY() {
+    return Math.max(0, Math.min(this.maze.player.y + this.panY, this.maze.height - 1));
+  }
+
+  /**
+   * brings the counts up to date and draws the screen.
+   *
+   * @return the picture of what the screen shows
+   */
+  ComputedPixelImage render() {
+    this.update();
+    if (this.zoom > 0) {
+      this.drawCells();
+    }
+    else {
+      this.drawBlocks(-this.zoom);
+    }
+    return this.image;
+  }
+
+  /**
+   * returns the number of levels of blocks needed for one block to cover a
+   * maze of the given size.
+   */
+  int levelsFor(int width, int height) {
+    int levels = 0;
+    while ((1 << levels) < Math.max(width, height)) {
+      levels++;
+    }
+    return levels;
+  }
+
+  /**
+   * adds the cells added to the search and to the solution since the last
+   * update to the counts, or makes them again if the maze was replaced.
+   */
+  void update() {
+    Maze m = this.maze;
+    if (this.walls == null || m.grid != this.grid || m.movements != this.movements
+        || m.movements.size() < this.countedMovements || m.solution != this.solution
+        || m.solution.size() < this.countedSolution) {
+      this.recount();
+    }
+
+    while (this.countedMovements < m.movements.size()) {
+      Node nd = m.movements.get(this.countedMovements);
+      if (this.explored.add(m.cellOf(nd))) {
+        this.addToBlocks(this.exploredCells, nd.x, nd.y);
+      }
+      this.countedMovements++;
+    }
+    while (this.countedSolution < m.solution.size()) {
+      Node nd = m.solution.get(this.countedSolution);
+      if (this.onSolution.add(m.cellOf(nd))) {
+        this.addToBlocks(this.solutionCells, nd.x, nd.y);
+      }
+      this.countedSolution++;
+    }
+  }
+
+  /**
+   * counts the walls of every block again and forgets the counted search.
+   */
+  void recount() {
+    Maze m = this.maze;
+    this.grid = m.grid;
+    this.movements = m.movements;
+    this.solution = m.solution;
+    this.countedMovements = 0;
+    this.countedSolution = 0;
+
+    int cells = m.width * m.height;
+    this.explored = new VisitedSet(cells);
+    this.onSolution = new VisitedSet(cells);
+    this.levels = this.levelsFor(m.width, m.height);
+    this.walls = new int[this.levels + 1][];
+    this.exploredCells = new int[this.levels + 1][];
+    this.solutionCells = new int[this.levels + 1][];
+    for (int level = 1; level <= this.levels; level++) {
+      int blocks = this.blocksAcross(m.width, level) * this.blocksAcross(m.height, level);
+      this.walls[level] = new int[blocks];
+      this.exploredCells[level] = new int[blocks];
+      this.solutionCells[level] = new int[blocks];
+    }
+    if (this.levels == 0) {
+      return;
+    }
+
+    // the first level from the cells, every other level from the one below
+    for (int x = 0; x < m.width; x++) {
+      for (int y = 0; y < m.height; y++) {
+        this.walls[1][this.blockId(x >> 1, y >> 1, 1)] += this.wallsOf(x, y);
+      }
+    }
+    for (int level = 2; level <= this.levels; level++) {
+      int across = this.blocksAcross(m.width, level - 1);
+      int down = this.blocksAcross(m.height, level - 1);
+      for (int bx = 0; bx < across; bx++) {
+        for (int by = 0; by < down; by++) {
+          this.walls[level][this.blockId(bx >> 1, by >> 1, level)] +=
+              this.walls[level - 1][this.blockId(bx, by, level - 1)];
+        }
+      }
+    }
+  }
+
+  /**
+   * returns the number of blocks of the given level across the given number
+   * of cells.
+   */
+  int blocksAcross(int cells, int level) {
+    return (cells + (1 << level) - 1) >> level;
+  }
+
+  /**
+   * returns the id of the block at the given column and row of a level.
+   */
+  int blockId(int bx, int by, int level) {
+    return bx * this.blocksAcross(this.maze.height, level) + by;
+  }
+
+  /**
+   * adds one to the count of every block the given cell is in.
+   */
+  void addToBlocks(int[][] counts, int x, int y) {
+    for (int level = 1; level <= this.levels; level++) {
+      counts[level][this.blockId(x >> level, y >> level, level)]++;
+    }
+  }
+
+  /**
+   * checks if the given cell has a wall in the given direction. Before the
+   * maze is carved every wall is standing.
+   */
+  boolean hasWall(int cell, int dir) {
+    return this.grid == null || this.grid.hasWall(cell, dir);
+  }
+
+  /**
+   * returns the number of walls to the right of and below the given cell,
+   * leaving out the border of the maze.
+   */
+  int wallsOf(int x, int y) {
+    int cell = x * this.maze.height + y;
+    int count = 0;
+    if (x + 1 < this.maze.width && this.hasWall(cell, MazeGrid.RIGHT)) {
+      count++;
+    }
+    if (y + 1 < this.maze.height && this.hasWall(cell, MazeGrid.BOTTOM)) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * draws every cell on the screen, 2^zoom pixels to a side. Walls are drawn
+   * on the left and top edge of a cell like in MazeLayer.
+   */
+  void drawCells() {
+    Maze m = this.maze;
+    int size = 1 << this.zoom;
+    int left = this.centerX() - (this.screenWidth >> this.zoom) / 2;
+    int top = this.centerY() - (this.screenHeight >> this.zoom) / 2;
+    int last = m.width * m.height - 1;
+
+    for (int px = 0; px < this.screenWidth; px++) {
+      int x = left + (px >> this.zoom);
+      int ox = px & (size - 1);
+      for (int py = 0; py < this.screenHeight; py++) {
+        int y = top + (py >> this.zoom);
+        int oy = py & (size - 1);
+        Color color;
+        if (x < 0 || y < 0 || x >= m.width || y >= m.height) {
+          color = OUTSIDE;
+        }
+        else {
+          int cell = x * m.height + y;
+          if ((ox == 0 && x > 0 && this.hasWall(cell, MazeGrid.LEFT))
+              || (oy == 0 && y > 0 && this.hasWall(cell, MazeGrid.TOP))) {
+            color = MazeLayer.WALL;
+          }
+          else if (ox == 0 || oy == 0) {
+            color = this.endColor(cell, last, MazeLayer.BACKGROUND);
+          }
+          else {
+            color = this.cellColor(x, y, cell, last);
+          }
+        }
+        this.image.setPixel(px, py, color);
+      }
+    }
+  }
+
+  /**
+   * returns the color of the inside of the given cell.
+   */
+  Color cellColor(int x, int y, int cell, int last) {
+    if (x == this.maze.player.x && y == this.maze.player.y) {
+      return PLAYER;
+    }
+    else if (this.onSolution.contains(cell)) {
+      return MazeLayer.SOLUTION;
+    }
+    else if (this.explored.contains(cell)) {
+      return MazeLayer.EXPLORED;
+    }
+    else {
+      return this.endColor(cell, last, MazeLayer.BACKGROUND);
+    }
+  }
+
+  /**
+   * returns the color of the start or end cell, or the given color for any
+   * other cell.
+   */
+  Color endColor(int cell, int last, Color other) {
+    if (cell == 0) {
+      return MazeLayer.START;
+    }
+    else if (cell == last) {
+      return MazeLayer.END;
+    }
+    else {
+      return other;
+    }
+  }
+
+  /**
+   * draws every block of the given level on the screen, one pixel to a
+   * block. A block is the player if the player is in it, and otherwise the
+   * solution or the search if any of its cells are, or a gray as dark as the
+   * share of its walls that stand.
+   */
+  void drawBlocks(int level) {
+    Maze m = this.maze;
+    int across = this.blocksAcross(m.width, level);
+    int down = this.blocksAcross(m.height, level);
+    int left = (this.centerX() >> level) - this.screenWidth / 2;
+    int top = (this.centerY() >> level) - this.screenHeight / 2;
+    int playerX = m.player.x >> level;
+    int playerY = m.player.y >> level;
+    int lastX = (m.width - 1) >> level;
+    int lastY = (m.height - 1) >> level;
+    // a block has at most two walls for each of its cells
+    long most = 2L << (2 * level);
+
+    for (int px = 0; px < this.screenWidth; px++) {
+      int bx = left + px;
+      for (int py = 0; py < this.screenHeight; py++) {
+        int by = top + py;
+        Color color;
+        if (bx < 0 || by < 0 || bx >= across || by >= down) {
+          color = OUTSIDE;
+        }
+        else if (bx == playerX && by == playerY) {
+          color = PLAYER;
+        }
+        else if (level == 0) {
+          int cell = bx * m.height + by;
+          color = this.cellColor(bx, by, cell, m.width * m.height - 1);
+          if (color == MazeLayer.BACKGROUND) {
+            color = this.shades[this.wallsOf(bx, by) * (this.shades.length - 1) / 2];
+          }
+        }
+        else {
+          int block = bx * down + by;
+          if (this.solutionCells[level][block] > 0) {
+            color = MazeLayer.SOLUTION;
+          }
+          else if (this.exploredCells[level][block] > 0) {
+            color = MazeLayer.EXPLORED;
+          }
+          else if (bx == 0 && by == 0) {
+            color = MazeLayer.START;
+          }
+          else if (bx == lastX && by == lastY) {
+            color = MazeLayer.END;
+          }
+          else {
+            color = this.shades[(int) (this.walls[level][block] * (this.shades.length - 1L)
+                / most)];
+          }
+        }
+        this.image.setPixel(px, py, color);
+      }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+import java.util.ArrayList;
+import javalib.worldimages.*;
+
+//represents a Node(cell) in a maze
+class Node {
+  int x;
+  int y;
+  Node top;
+  Node bottom;
+  Node left;
+  Node right;
+  Posn pos;
+
+  // constructor for Node that sets its right, left, top, and bottom to null
+  Node(int x, int y) {
+    this.x = x;
+    this.y = y;
+    pos = new Posn(x, y);
+  }
+
+  /**
+   * sets the top, right, left, and bottom of the given Node
+   * 
+   * @param board  is the board that contains the node
+   * @param i      the position of the board in the arraylist
+   * @param height the height position of the node on the board
+   * @param width  the width of the position of the node on the board
+   */
+  void setNode(ArrayList<Node> board, int i, int height, int width) {
+    // setting left cells
+    if (this.x == 0) {
+      this.left = this;
+    }
+    else {
+      this.left = board.get(i - height);
+    }
+
+    // setting right cells
+    if (this.x == width - 1) {
+      this.right = this;
+    }
+    else {
+      this.right = board.get(i + height);
+    }
+
+    // setting top cells
+    if (this.y == 0) {
+      this.top = this;
+    }
+    else {
+      this.top = board.get(i - 1);
+    }
+
+    // setting bottom cells
+    if (this.y == height - 1) {
+      this.bottom = this;
+    }
+    else {
+      this.bottom = board.get(i + 1);
+    }
+  }
+
+}
@@ -0,0 +1,55 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * writes the rows it receives to an output stream with two bits per cell, the
+ * RIGHT wall in the low bit and the BOTTOM wall in the high bit, four cells to
+ * a byte starting from the lowest bits. Every row starts on a new byte.
+ */
+class PackedRowSink implements RowSink {
+  OutputStream out;
+  byte[] packed;
+
+  PackedRowSink(OutputStream out, int width) {
+    this.out = out;
+    this.packed = new byte[packedLength(width)];
+  }
+
+  /**
+   * returns the number of bytes a packed row of the given width takes.
+   */
+  static int packedLength(int width) {
+    return (width + 3) / 4;
+  }
+
+  /**
+   * packs the walls of a row into the given bytes.
+   */
+  static void pack(byte[] walls, byte[] packed) {
+    Arrays.fill(packed, (byte) 0);
+    for (int x = 0; x < walls.length; x++) {
+      packed[x >>> 2] |= (walls[x] & (MazeGrid.RIGHT | MazeGrid.BOTTOM)) << ((x & 3) << 1);
+    }
+  }
+
+  /**
+   * unpacks the walls of a row from the given bytes.
+   */
+  static void unpack(byte[] packed, byte[] walls) {
+    for (int x = 0; x < walls.length; x++) {
+      walls[x] = (byte) ((packed[x >>> 2] >>> ((x & 3) << 1)) & (MazeGrid.RIGHT | MazeGrid.BOTTOM));
+    }
+  }
+
+  public void acceptRow(long y, byte[] walls) {
+    pack(walls, this.packed);
+    try {
+      this.out.write(this.packed);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,173 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * generates mazes on several cores at once. The grid is cut into square tiles,
+ * every tile gets a spanning tree of its own from the tile generator on a
+ * ForkJoinPool, and then kruskal's algorithm over only the edges between tiles
+ * joins the tiles into one perfect maze.
+ *
+ * Only one seed is drawn from rand. Every tile carves with its own stream of
+ * that seed from SeedHash, so the maze only depends on the seed and never on
+ * how the tiles were scheduled.
+ */
+class ParallelGenerator implements MazeGenerator {
+  // ranges of at most this many tiles are generated without splitting them
+  static final int SEQUENTIAL_TILES = 4;
+
+  MazeGenerator tileGenerator;
+  int tileSize;
+  ForkJoinPool pool;
+
+  /**
+   * constructor for a generator that carves 256x256 tiles with kruskal's
+   * algorithm on the common pool.
+   */
+  ParallelGenerator() {
+    this(new KruskalGenerator(), 256, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * constructor for a generator with its own tiles and pool.
+   *
+   * @param tileGenerator the algorithm that carves every tile
+   * @param tileSize      the height and width of the tiles
+   * @param pool          the pool the tiles are generated on
+   */
+  ParallelGenerator(MazeGenerator tileGenerator, int tileSize, ForkJoinPool pool) {
+    if (tileSize < 1) {
+      throw new IllegalArgumentException("a tile needs at least one cell");
+    }
+    this.tileGenerator = tileGenerator;
+    this.tileSize = tileSize;
+    this.pool = pool;
+  }
+
+  public void generate(MazeGrid grid, Random rand) {
+    int tilesDown = (grid.height + this.tileSize - 1) / this.tileSize;
+    int tilesAcross = (grid.width + this.tileSize - 1) / this.tileSize;
+    int tiles = tilesDown * tilesAcross;
+
+    long seed = rand.nextLong();
+    this.pool.invoke(new TileTask(this, grid, seed, tilesDown, 0, tiles));
+    // the stream after the last tile's orders the edges between the tiles
+    this.stitch(grid, SeedHash.stream(seed, tiles), tilesDown);
+  }
+
+  /**
+   * carves the given tile with its own stream of the seed into the grid.
+   *
+   * @param grid      the whole maze
+   * @param seed      the seed of the whole maze
+   * @param tilesDown the number of tiles in every column of tiles
+   * @param tile      the tile, counted down each column of tiles first
+   */
+  void generateTile(MazeGrid grid, long seed, int tilesDown, int tile) {
+    int x0 = (tile / tilesDown) * this.tileSize;
+    int y0 = (tile % tilesDown) * this.tileSize;
+    int height = Math.min(this.tileSize, grid.height - y0);
+    int width = Math.min(this.tileSize, grid.width - x0);
+
+    // the tile's own walls stand all around it, just like the tile's edges in
+    // the whole grid, so its cells can be copied over as they are
+    MazeGrid part = new MazeGrid(height, width, SeedHash.stream(seed, tile), this.tileGenerator);
+    for (int x = 0; x < width; x++) {
+      System.arraycopy(part.walls, part.cellAt(x, 0), grid.walls, grid.cellAt(x0 + x, y0),
+          height);
+    }
+  }
+
+  /**
+   * joins the tiles with kruskal's algorithm over the edges that cross from one
+   * tile into another, tried in a random order. Every tile is already a tree, so
+   * it is a single set from the start.
+   *
+   * @param grid      the whole maze, with every tile carved
+   * @param rand      the source of the order of the edges
+   * @param tilesDown the number of tiles in every column of tiles
+   */
+  void stitch(MazeGrid grid, Random rand, int tilesDown) {
+    int size = this.tileSize;
+    int across = (grid.width - 1) / size;
+    int down = (grid.height - 1) / size;
+    int[] edges = new int[across * grid.height + down * grid.width];
+
+    int k = 0;
+    for (int i = 1; i <= across; i++) {
+      for (int y = 0; y < grid.height; y++) {
+        edges[k] = MazeGrid.edgeId(grid.cellAt(i * size - 1, y), MazeGrid.RIGHT);
+        k++;
+      }
+    }
+    for (int j = 1; j <= down; j++) {
+      for (int x = 0; x < grid.width; x++) {
+        edges[k] = MazeGrid.edgeId(grid.cellAt(x, j * size - 1), MazeGrid.BOTTOM);
+        k++;
+      }
+    }
+
+    for (int i = edges.length - 1; i > 0; i--) {
+      int j = rand.nextInt(i + 1);
+      int temp = edges[i];
+      edges[i] = edges[j];
+      edges[j] = temp;
+    }
+
+    DisjointSet tiles = new DisjointSet((across + 1) * tilesDown);
+    for (int edge : edges) {
+      int cell = MazeGrid.edgeCell(edge);
+      int dir = MazeGrid.edgeDir(edge);
+      int other = grid.neighbor(cell, dir);
+      if (tiles.union(this.tileOf(grid, cell, tilesDown), this.tileOf(grid, other, tilesDown))) {
+        grid.carve(cell, dir);
+      }
+    }
+  }
+
+  /**
+   * returns the tile the given cell is in.
+   */
+  int tileOf(MazeGrid grid, int cell, int tilesDown) {
+    return (grid.xOf(cell) / this.tileSize) * tilesDown + grid.yOf(cell) / this.tileSize;
+  }
+}
+
+/**
+ * generates a range of tiles, splitting the range in half until it is small
+ * enough to generate in one go.
+ */
+class TileTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  ParallelGenerator generator;
+  MazeGrid grid;
+  long seed;
+  int tilesDown;
+  int from;
+  int to;
+
+  TileTask(ParallelGenerator generator, MazeGrid grid, long seed, int tilesDown, int from,
+      int to) {
+    this.generator = generator;
+    this.grid = grid;
+    this.seed = seed;
+    this.tilesDown = tilesDown;
+    this.from = from;
+    this.to = to;
+  }
+
+  protected void compute() {
+    if (this.to - this.from <= ParallelGenerator.SEQUENTIAL_TILES) {
+      for (int tile = this.from; tile < this.to; tile++) {
+        this.generator.generateTile(this.grid, this.seed, this.tilesDown, tile);
+      }
+    }
+    else {
+      int middle = (this.from + this.to) >>> 1;
+      invokeAll(new TileTask(this.generator, this.grid, this.seed, this.tilesDown, this.from,
+          middle),
+          new TileTask(this.generator, this.grid, this.seed, this.tilesDown, middle, this.to));
+    }
+  }
+}
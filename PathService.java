@@ -0,0 +1,228 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * answers batches of path queries against one generated maze on a
+ * ForkJoinPool. A query is a pair of cells, and a batch is an array holding the
+ * start and the goal of every query one after the other.
+ *
+ * The maze is never changed once the service is made, so every thread can
+ * read it at once. A perfect maze is answered from a TreeIndex, any other maze
+ * by a breadth-first GridSearch of each thread's own.
+ */
+class PathService {
+  // ranges of at most this many queries are answered without splitting them
+  static final int SEQUENTIAL_QUERIES = 256;
+
+  MazeGrid grid;
+  ForkJoinPool pool;
+
+  /**
+   * the index of the maze, or null if the maze is not a spanning tree.
+   */
+  TreeIndex tree;
+
+  // the search of every thread that answers queries about a maze that is not a
+  // spanning tree, made the first time the thread needs it
+  ThreadLocal<GridSearch> searches = new ThreadLocal<GridSearch>();
+
+  // how many queries the last batch answered and how long it took. Only the
+  // thread that ran the batch writes them, after every task has joined, and
+  // both are read and written together under the lock of the service
+  int answered;
+  long nanos;
+
+  /**
+   * constructor for a service on the common pool.
+   *
+   * @param grid the maze the queries are about
+   */
+  PathService(MazeGrid grid) {
+    this(grid, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * constructor for a service on the given pool.
+   *
+   * @param grid the maze the queries are about
+   * @param pool the pool the queries are answered on
+   */
+  PathService(MazeGrid grid, ForkJoinPool pool) {
+    this.grid = grid;
+    this.pool = pool;
+    try {
+      this.tree = new TreeIndex(grid, 0);
+    }
+    catch (IllegalArgumentException e) {
+      // mazes with loops or unreachable cells are searched instead
+      this.tree = null;
+    }
+  }
+
+  /**
+   * returns the number of steps between the start and the goal of every query.
+   *
+   * @param queries the start and the goal of every query, one after the other
+   * @return the length of every path
+   */
+  int[] lengths(int[] queries) {
+    int[] lengths = new int[this.count(queries)];
+    this.answer(queries, lengths, null);
+    return lengths;
+  }
+
+  /**
+   * returns the cells on the path of every query.
+   *
+   * @param queries the start and the goal of every query, one after the other
+   * @return the cells of every path, from the goal back to the start
+   */
+  int[][] paths(int[] queries) {
+    int[][] paths = new int[this.count(queries)][];
+    this.answer(queries, null, paths);
+    return paths;
+  }
+
+  /**
+   * checks the queries and returns how many there are.
+   */
+  int count(int[] queries) {
+    if (queries.length % 2 != 0) {
+      throw new IllegalArgumentException("every query needs a start and a goal");
+    }
+    for (int cell : queries) {
+      if (cell < 0 || cell >= this.grid.cells()) {
+        throw new IllegalArgumentException("cell " + cell + " is not in the maze");
+      }
+    }
+    return queries.length / 2;
+  }
+
+  /**
+   * answers every query on the pool and times the batch.
+   *
+   * @param queries the start and the goal of every query
+   * @param lengths where the lengths go, or null
+   * @param paths   where the paths go, or null
+   */
+  void answer(int[] queries, int[] lengths, int[][] paths) {
+    int count = queries.length / 2;
+    long start = System.nanoTime();
+    QueryTask task = new QueryTask(this, queries, lengths, paths, 0, count);
+    this.pool.invoke(task);
+    this.record(task.answered, System.nanoTime() - start);
+  }
+
+  /**
+   * remembers how many queries a batch answered and how long it took.
+   */
+  synchronized void record(int answered, long nanos) {
+    this.answered = answered;
+    this.nanos = nanos;
+  }
+
+  /**
+   * answers the given range of queries on the current thread.
+   *
+   * @param queries the start and the goal of every query
+   * @param lengths where the lengths go, or null
+   * @param paths   where the paths go, or null
+   * @param from    the first query of the range
+   * @param to      the end of the range
+   */
+  void answerRange(int[] queries, int[] lengths, int[][] paths, int from, int to) {
+    GridSearch search = null;
+    if (this.tree == null) {
+      search = this.search();
+    }
+
+    for (int i = from; i < to; i++) {
+      int start = queries[2 * i];
+      int goal = queries[2 * i + 1];
+      if (this.tree != null && paths == null) {
+        lengths[i] = this.tree.distance(start, goal);
+      }
+      else {
+        int[] path;
+        if (this.tree != null) {
+          path = this.tree.path(start, goal);
+        }
+        else {
+          path = search.search(start, goal, GridSearch.BREADTH_FIRST);
+        }
+
+        if (paths != null) {
+          paths[i] = path;
+        }
+        else {
+          lengths[i] = path.length - 1;
+        }
+      }
+    }
+  }
+
+  /**
+   * returns the search of the current thread, so that every worker allocates
+   * the arrays of a search once instead of once for every range it answers.
+   */
+  GridSearch search() {
+    GridSearch search = this.searches.get();
+    if (search == null) {
+      search = new GridSearch(this.grid);
+      this.searches.set(search);
+    }
+    return search;
+  }
+
+  /**
+   * returns how many queries a second the last batch was answered at.
+   */
+  synchronized double throughput() {
+    if (this.nanos == 0) {
+      return 0;
+    }
+    return this.answered * 1e9 / this.nanos;
+  }
+}
+
+/**
+ * answers a range of queries, splitting the range in half until it is small
+ * enough to answer in one go. Every task counts the queries it answered, and
+ * a task that split adds up the counts of its halves once both have joined.
+ */
+class QueryTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  PathService service;
+  int[] queries;
+  int[] lengths;
+  int[][] paths;
+  int from;
+  int to;
+  int answered;
+
+  QueryTask(PathService service, int[] queries, int[] lengths, int[][] paths, int from, int to) {
+    this.service = service;
+    this.queries = queries;
+    this.lengths = lengths;
+    this.paths = paths;
+    this.from = from;
+    this.to = to;
+  }
+
+  protected void compute() {
+    if (this.to - this.from <= PathService.SEQUENTIAL_QUERIES) {
+      this.service.answerRange(this.queries, this.lengths, this.paths, this.from, this.to);
+      this.answered = this.to - this.from;
+    }
+    else {
+      int middle = (this.from + this.to) >>> 1;
+      QueryTask left = new QueryTask(this.service, this.queries, this.lengths, this.paths,
+          this.from, middle);
+      QueryTask right = new QueryTask(this.service, this.queries, this.lengths, this.paths,
+          middle, this.to);
+      invokeAll(left, right);
+      this.answered = left.answered + right.answered;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+import java.util.Random;
+
+/**
+ * generates mazes with a randomized prim's algorithm: the maze grows from one
+ * cell by always carving the lightest edge leading out of it. The frontier
+ * edges are kept in a primitive heap keyed by a random weight.
+ */
+class PrimGenerator implements MazeGenerator {
+
+  public void generate(MazeGrid grid, Random rand) {
+    VisitedSet inMaze = new VisitedSet(grid.cells());
+    LongHeap frontier = new LongHeap(1024);
+
+    int first = rand.nextInt(grid.cells());
+    inMaze.add(first);
+    this.addFrontier(grid, first, inMaze, frontier, rand);
+
+    while (!frontier.isEmpty()) {
+      int edge = LongHeap.idOf(frontier.pop());
+      int cell = MazeGrid.edgeCell(edge);
+      int dir = MazeGrid.edgeDir(edge);
+      int other = grid.neighbor(cell, dir);
+
+      // one end is always in the maze already, the edge is only carved if
+      // the other end is not
+      if (inMaze.add(cell)) {
+        grid.carve(cell, dir);
+        this.addFrontier(grid, cell, inMaze, frontier, rand);
+      }
+      else if (inMaze.add(other)) {
+        grid.carve(cell, dir);
+        this.addFrontier(grid, other, inMaze, frontier, rand);
+      }
+    }
+  }
+
+  /**
+   * adds the edges from the given cell to every neighbor that is not in the
+   * maze yet to the frontier, with random weights.
+   */
+  void addFrontier(MazeGrid grid, int cell, VisitedSet inMaze, LongHeap frontier, Random rand) {
+    for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+      int other = grid.neighbor(cell, dir);
+      if (other >= 0 && !inMaze.contains(other)) {
+        frontier.push(LongHeap.entry(rand.nextInt(MazeGrid.MAX_WEIGHT) + 1,
+            grid.edgeTo(cell, dir)));
+      }
+    }
+  }
+}
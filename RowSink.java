@@ -0,0 +1,16 @@
+/**
+ * represents something that receives a maze one row at a time. Every cell of a
+ * row is a mask of MazeGrid.RIGHT and MazeGrid.BOTTOM for the walls that stand
+ * between it and its right and bottom neighbors. Like Maze.edges, only walls
+ * between two cells are included, never the border of the maze.
+ */
+interface RowSink {
+  /**
+   * receives the walls of the given row. The array is reused for the next row,
+   * so it has to be copied if it is kept.
+   *
+   * @param y     the row, counted from the top
+   * @param walls the walls of every cell in the row, from left to right
+   */
+  void acceptRow(long y, byte[] walls);
+}
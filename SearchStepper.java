@@ -0,0 +1,108 @@
+/**
+ * drives the animated search of a Maze a few steps at a time, so that onTick
+ * can take as many steps as a frame allows instead of exactly one. A step
+ * takes one node off the worklist of the maze and, if it was not explored yet,
+ * explores it. The state of the search stays in the maze, so the search picks
+ * up where it left off on the next call, and pressing "d" or "b" still pauses,
+ * resumes or switches it between steps.
+ */
+class SearchStepper {
+  // how many steps stepFor takes between looks at the clock
+  static final int CLOCK_STEPS = 64;
+
+  Maze maze;
+
+  /**
+   * the number of steps taken since the stepper was made.
+   */
+  long steps;
+
+  /**
+   * constructor for a stepper of the given maze's search.
+   *
+   * @param maze the maze whose search is stepped
+   */
+  SearchStepper(Maze maze) {
+    this.maze = maze;
+  }
+
+  /**
+   * checks if the search is paused or has nothing left to explore.
+   */
+  boolean isStopped() {
+    return !(this.maze.depthInit || this.maze.breadthInit) || this.maze.workList.isEmpty();
+  }
+
+  /**
+   * takes one step of the search: a depth-first search takes the newest node
+   * off the worklist, a breadth-first search the oldest. Reaching the last node
+   * builds the solution and ends the search.
+   *
+   * @return false if the search is stopped and no step was taken
+   */
+  boolean stepOnce() {
+    if (this.isStopped()) {
+      return false;
+    }
+
+    Maze m = this.maze;
+    Node nd;
+    if (m.depthInit) {
+      nd = m.workList.removeLast();
+    }
+    else {
+      nd = m.workList.removeFirst();
+    }
+    this.steps++;
+
+    int cell = m.cellOf(nd);
+    if (m.visited.contains(cell)) {
+      // it was reached more than once, and explored the first time
+      return true;
+    }
+    if (cell == m.cells() - 1) {
+      m.searchHelper(nd);
+      m.workList.clear();
+    }
+    else {
+      m.expand(nd);
+      m.visited.add(cell);
+      m.movements.add(nd);
+    }
+    return true;
+  }
+
+  /**
+   * takes up to the given number of steps.
+   *
+   * @param maxSteps the most steps to take
+   * @return the number of steps taken
+   */
+  int step(int maxSteps) {
+    int taken = 0;
+    while (taken < maxSteps && this.stepOnce()) {
+      taken++;
+    }
+    return taken;
+  }
+
+  /**
+   * takes steps until the given time has passed or the search stops. The clock
+   * is only read every CLOCK_STEPS steps, so a few more steps than fit in the
+   * time can be taken.
+   *
+   * @param nanos the time to take steps for
+   * @return the number of steps taken
+   */
+  int stepFor(long nanos) {
+    long deadline = System.nanoTime() + nanos;
+    int taken = 0;
+    while (this.stepOnce()) {
+      taken++;
+      if (taken % CLOCK_STEPS == 0 && System.nanoTime() - deadline >= 0) {
+        break;
+      }
+    }
+    return taken;
+  }
+}
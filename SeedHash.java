@@ -0,0 +1,62 @@
+import java.util.Random;
+
+/**
+ * a counter-based source of randomness: every value is a hash of a seed and a
+ * counter, such as an edge id or a tile number, instead of the next value of a
+ * shared generator. The values can be computed in any order, on any thread,
+ * or not at all, and a seed still always describes the same maze.
+ *
+ * The hash is the finalizer of SplittableRandom's SplitMix64 generator.
+ */
+class SeedHash {
+  // the increment SplitMix64 adds between values, an odd multiple of the
+  // golden ratio
+  static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  /**
+   * scrambles the bits of the given value.
+   */
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * returns the random value of the given counter in the stream of the given
+   * seed. It is the same value SplittableRandom(seed) would give as its
+   * counter + 1-th nextLong().
+   *
+   * @param seed    the seed of the stream
+   * @param counter the position in the stream
+   * @return a random long
+   */
+  static long hash(long seed, long counter) {
+    return mix(seed + GOLDEN_GAMMA * (counter + 1));
+  }
+
+  /**
+   * returns the random weight from 1 to MazeGrid.MAX_WEIGHT of the given edge.
+   *
+   * @param seed the seed of the maze
+   * @param edge the id of the edge
+   * @return the weight of the edge
+   */
+  static int weight(long seed, int edge) {
+    // scales the high 32 bits into the range instead of taking a remainder
+    return (int) (((hash(seed, edge) >>> 32) * MazeGrid.MAX_WEIGHT) >>> 32) + 1;
+  }
+
+  /**
+   * returns a generator of its own for the given stream of the seed, for
+   * algorithms that need a Random, such as the ones carving the tiles of a
+   * ParallelGenerator.
+   *
+   * @param seed   the seed of the maze
+   * @param stream the number of the stream
+   * @return a Random seeded by the stream
+   */
+  static Random stream(long seed, long stream) {
+    return new Random(hash(seed, stream));
+  }
+}
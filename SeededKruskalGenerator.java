@@ -0,0 +1,14 @@
+import java.util.Random;
+
+/**
+ * generates mazes with kruskal's algorithm over edge weights hashed from a
+ * seed. Only the seed is drawn from rand, so the same seed always gives the
+ * same maze, no matter in which order or on which thread the weights are
+ * computed.
+ */
+class SeededKruskalGenerator implements MazeGenerator {
+
+  public void generate(MazeGrid grid, Random rand) {
+    grid.kruskal(grid.edgesBySeed(rand.nextLong()));
+  }
+}
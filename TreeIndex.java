@@ -0,0 +1,164 @@
+/**
+ * indexes a perfect maze as a rooted tree, so the one path between any two
+ * cells can be found without a search. The tree is rooted once, and every cell
+ * keeps its depth and its ancestors 1, 2, 4, 8 and so on steps up, so the
+ * lowest common ancestor of two cells is found in O(log n) steps. The length
+ * of a path follows from the depths, and its cells from walking up to the
+ * common ancestor.
+ */
+class TreeIndex {
+  MazeGrid grid;
+  int root;
+
+  /**
+   * the number of steps from the root to every cell.
+   */
+  int[] depth;
+
+  /**
+   * the ancestor 2^k steps up from every cell at up[k], or the root if the
+   * cell is not that deep. up[0] is the parent of every cell.
+   */
+  int[][] up;
+
+  /**
+   * constructor that roots the given maze at the given cell.
+   *
+   * @param grid a perfect maze
+   * @param root the cell the tree hangs from
+   */
+  TreeIndex(MazeGrid grid, int root) {
+    int cells = grid.cells();
+    this.grid = grid;
+    this.root = root;
+    this.depth = new int[cells];
+    int[] parent = new int[cells];
+
+    // roots the tree breadth-first, the queue doubles as the visited order
+    VisitedSet seen = new VisitedSet(cells);
+    int[] queue = new int[cells];
+    int head = 0;
+    int tail = 1;
+    queue[0] = root;
+    parent[root] = root;
+    seen.add(root);
+    int maxDepth = 0;
+    int passages = 0;
+
+    while (head < tail) {
+      int cell = queue[head];
+      head++;
+      for (int dir = MazeGrid.RIGHT; dir <= MazeGrid.TOP; dir <<= 1) {
+        if (grid.canMove(cell, dir)) {
+          passages++;
+          int other = grid.neighbor(cell, dir);
+          if (seen.add(other)) {
+            parent[other] = cell;
+            this.depth[other] = this.depth[cell] + 1;
+            maxDepth = Math.max(maxDepth, this.depth[other]);
+            queue[tail] = other;
+            tail++;
+          }
+        }
+      }
+    }
+
+    // every passage was seen from both of its cells
+    if (tail != cells || passages / 2 != cells - 1) {
+      throw new IllegalArgumentException("the maze is not a spanning tree");
+    }
+
+    // only as many levels as the deepest cell needs
+    int levels = 1;
+    while ((1 << levels) <= maxDepth) {
+      levels++;
+    }
+    this.up = new int[levels][];
+    this.up[0] = parent;
+    for (int k = 1; k < levels; k++) {
+      int[] half = this.up[k - 1];
+      int[] next = new int[cells];
+      for (int cell = 0; cell < cells; cell++) {
+        next[cell] = half[half[cell]];
+      }
+      this.up[k] = next;
+    }
+  }
+
+  /**
+   * returns the cell the given number of steps up from the given cell, or the
+   * root if the cell is not that deep.
+   */
+  int ancestor(int cell, int steps) {
+    for (int k = 0; steps > 0 && k < this.up.length; k++) {
+      if ((steps & 1) != 0) {
+        cell = this.up[k][cell];
+      }
+      steps >>>= 1;
+    }
+    if (steps > 0) {
+      return this.root;
+    }
+    return cell;
+  }
+
+  /**
+   * returns the deepest cell that is an ancestor of both cells.
+   */
+  int lowestCommonAncestor(int a, int b) {
+    if (this.depth[a] < this.depth[b]) {
+      int temp = a;
+      a = b;
+      b = temp;
+    }
+    a = this.ancestor(a, this.depth[a] - this.depth[b]);
+    if (a == b) {
+      return a;
+    }
+
+    // moves both up by every power of two that keeps them apart
+    for (int k = this.up.length - 1; k >= 0; k--) {
+      if (this.up[k][a] != this.up[k][b]) {
+        a = this.up[k][a];
+        b = this.up[k][b];
+      }
+    }
+    return this.up[0][a];
+  }
+
+  /**
+   * returns the number of steps on the path between the two cells.
+   */
+  int distance(int a, int b) {
+    return this.depth[a] + this.depth[b] - 2 * this.depth[this.lowestCommonAncestor(a, b)];
+  }
+
+  /**
+   * returns the cells on the path between the two cells.
+   *
+   * @param start the cell the path starts at
+   * @param goal  the cell the path ends at
+   * @return the cells of the path, from the goal back to the start
+   */
+  int[] path(int start, int goal) {
+    int common = this.lowestCommonAncestor(start, goal);
+    int fromGoal = this.depth[goal] - this.depth[common];
+    int fromStart = this.depth[start] - this.depth[common];
+    int[] path = new int[fromGoal + fromStart + 1];
+    int[] parent = this.up[0];
+
+    // the goal's side goes up from the front, the start's side from the back
+    int cell = goal;
+    for (int i = 0; i < fromGoal; i++) {
+      path[i] = cell;
+      cell = parent[cell];
+    }
+    path[fromGoal] = common;
+    cell = start;
+    for (int i = path.length - 1; i > fromGoal; i--) {
+      path[i] = cell;
+      cell = parent[cell];
+    }
+    return path;
+  }
+}
@@ -0,0 +1,61 @@
+import java.util.Arrays;
+
+/**
+ * represents the set of cells a search has already visited, as one bit per
+ * cell id packed into longs.
+ */
+class VisitedSet {
+  long[] bits;
+  int size;
+
+  /**
+   * constructor that makes an empty set for the ids 0 to size - 1.
+   *
+   * @param size the number of ids
+   */
+  VisitedSet(int size) {
+    this.size = size;
+    this.bits = new long[(size + 63) >>> 6];
+  }
+
+  /**
+   * checks if the given id has been visited.
+   */
+  boolean contains(int id) {
+    return (this.bits[id >>> 6] & (1L << id)) != 0;
+  }
+
+  /**
+   * marks the given id as visited.
+   *
+   * @param id the id to mark
+   * @return true if the id had not been visited before
+   */
+  boolean add(int id) {
+    long word = this.bits[id >>> 6];
+    long mask = 1L << id;
+    if ((word & mask) != 0) {
+      return false;
+    }
+    this.bits[id >>> 6] = word | mask;
+    return true;
+  }
+
+  /**
+   * forgets every visited id.
+   */
+  void clear() {
+    Arrays.fill(this.bits, 0L);
+  }
+
+  /**
+   * returns the number of visited ids.
+   */
+  int count() {
+    int count = 0;
+    for (long word : this.bits) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+}
@@ -0,0 +1,49 @@
+import java.util.Random;
+
+/**
+ * generates mazes with wilson's algorithm, which picks uniformly among all the
+ * spanning trees of the grid. Every cell outside the maze starts a random walk
+ * that ends when it hits the maze, and the walk with its loops erased is carved.
+ */
+class WilsonGenerator implements MazeGenerator {
+
+  public void generate(MazeGrid grid, Random rand) {
+    int cells = grid.cells();
+    VisitedSet inMaze = new VisitedSet(cells);
+    // the direction the latest walk left each cell in, which erases loops
+    byte[] exit = new byte[cells];
+
+    inMaze.add(rand.nextInt(cells));
+
+    for (int start = 0; start < cells; start++) {
+      // walks randomly until the walk hits the maze
+      int cell = start;
+      while (!inMaze.contains(cell)) {
+        int dir = this.randomDirection(grid, cell, rand);
+        exit[cell] = (byte) dir;
+        cell = grid.neighbor(cell, dir);
+      }
+
+      // carves the walk without its loops
+      cell = start;
+      while (!inMaze.contains(cell)) {
+        int dir = exit[cell];
+        grid.carve(cell, dir);
+        inMaze.add(cell);
+        cell = grid.neighbor(cell, dir);
+      }
+    }
+  }
+
+  /**
+   * picks a random direction that does not leave the grid.
+   */
+  int randomDirection(MazeGrid grid, int cell, Random rand) {
+    while (true) {
+      int dir = 1 << rand.nextInt(4);
+      if (grid.neighbor(cell, dir) >= 0) {
+        return dir;
+      }
+    }
+  }
+}